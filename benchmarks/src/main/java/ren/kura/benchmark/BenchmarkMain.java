@@ -0,0 +1,37 @@
+package ren.kura.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * @author: liuhao
+ * @Date: 2026/10/18
+ * @Description: 分别用1、4、16个线程运行所有的基准测试，每种线程数的结果输出为一个json文件，便于在不同版本之间比较
+ * 参数：第一个参数为结果的目录（默认 target/jmh），第二个参数为需要运行的测试的正则（默认全部）
+ */
+public class BenchmarkMain {
+
+    private static final int[] THREADS = {1, 4, 16};
+
+    public static void main(String[] args) throws RunnerException {
+        File dir = new File(args.length > 0 ? args[0] : "target/jmh");
+        String include = args.length > 1 ? args[1] : "ren\\.kura\\.benchmark\\..*";
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IllegalStateException("can not create " + dir);
+        }
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(dir, "jmh-result-" + threads + "-threads.json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ren.kura.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ren.kura.PropertiesUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: liuhao
+ * @Date: 2026/10/18
+ * @Description: PropertiesUtils.getProValue 的读取性能，配置文件为 benchmarks 下的 system_config.properties
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertiesUtilsBenchmark {
+
+    @Setup
+    public void setUp() {
+        PropertiesUtils.reLoad();
+    }
+
+    @Benchmark
+    public String getProValue() {
+        return PropertiesUtils.getProValue("quarterTime");
+    }
+
+    @Benchmark
+    public String getMissingProValue() {
+        return PropertiesUtils.getProValue("not.exist.key");
+    }
+}
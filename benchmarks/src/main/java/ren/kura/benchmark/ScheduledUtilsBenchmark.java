@@ -0,0 +1,85 @@
+package ren.kura.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.impl.StdSchedulerFactory;
+import ren.kura.utils.ScheduleManager;
+import ren.kura.utils.ScheduledUtils;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: liuhao
+ * @Date: 2026/10/18
+ * @Description: ScheduledUtils 添加、修改、删除一个任务的完整过程，使用内存中的 RAMJobStore（quartz-benchmark.properties）
+ * 分别测试 CRON 和 ONE_SHOT 两种触发器
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduledUtilsBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Param({"CRON", "ONE_SHOT"})
+    private ScheduledUtils.TriggerMode triggerMode;
+
+    private ScheduledUtils scheduledUtils;
+
+    private Date startDate;
+
+    private Date updateDate;
+
+    @Setup
+    public void setUp() throws Exception {
+        System.setProperty(StdSchedulerFactory.PROPERTIES_FILE, "quartz-benchmark.properties");
+        ScheduleManager.getInstance().start();
+        scheduledUtils = new ScheduledUtils(triggerMode, TimeZone.getDefault());
+        //触发时间放在一年以后，测试过程中不会执行
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.YEAR, 1);
+        startDate = calendar.getTime();
+        calendar.add(Calendar.HOUR_OF_DAY, 1);
+        updateDate = calendar.getTime();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        ScheduleManager.getInstance().shutdownGracefully(10000);
+    }
+
+    @Benchmark
+    public long addModifyRemove() {
+        long id = sequence.incrementAndGet();
+        String name = "job" + id;
+        scheduledUtils.addJob(name, "benchmark", name, "benchmark", NoopJob.class, startDate, String.valueOf(id));
+        scheduledUtils.modifyJobTime(name, "benchmark", name, "benchmark", updateDate);
+        scheduledUtils.removeJob(name, "benchmark", name, "benchmark");
+        return id;
+    }
+
+    public static class NoopJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ren.kura.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ren.kura.utils.ParsedSql;
+import ren.kura.utils.SqlParserUtil;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: liuhao
+ * @Date: 2026/10/18
+ * @Description: SqlParserUtil 的解析性能，分别测试兼容的 getParsedMapSql 和返回 ParsedSql 的 parseSql
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlParserBenchmark {
+
+    @Param({"oltp", "nested", "report50k"})
+    public String workload;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        SqlParserUtil.disableParseCache();
+        if ("oltp".equals(workload)) {
+            sql = SqlWorkloads.oltp();
+        } else if ("nested".equals(workload)) {
+            sql = SqlWorkloads.nested(8);
+        } else {
+            sql = SqlWorkloads.report(50 * 1024);
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> getParsedMapSql() {
+        return SqlParserUtil.getParsedMapSql(sql);
+    }
+
+    @Benchmark
+    public ParsedSql parseSql() {
+        return SqlParserUtil.parseSql(sql);
+    }
+
+    @Benchmark
+    public String parseSqlAndReadWhere() {
+        return SqlParserUtil.parseSql(sql).getClause(SqlParserUtil.SqlChainNameEnum.WHERE);
+    }
+}
@@ -0,0 +1,55 @@
+package ren.kura.benchmark;
+
+/**
+ * @author: liuhao
+ * @Date: 2026/10/18
+ * @Description: 基准测试用的sql，短的OLTP查询、WHERE中多层嵌套的子查询、50KB左右生成的报表sql
+ */
+public final class SqlWorkloads {
+
+    private SqlWorkloads() {
+    }
+
+    public static String oltp() {
+        return "select u.id, u.name, u.status from t_user u where u.id = 10086 and u.status = 1";
+    }
+
+    /**
+     * WHERE 中嵌套 depth 层的子查询
+     */
+    public static String nested(int depth) {
+        StringBuilder sb = new StringBuilder("select a.id, a.name from t_a a left join t_b b on a.id = b.a_id where a.id in (");
+        for (int i = 0; i < depth; i++) {
+            sb.append("select c").append(i).append(".id from t_c").append(i).append(" c").append(i)
+                    .append(" where c").append(i).append(".flag = 'from where' and c").append(i).append(".id in (");
+        }
+        sb.append("select 1");
+        for (int i = 0; i < depth; i++) {
+            sb.append(") group by c").append(i).append(".id");
+        }
+        sb.append(") group by a.id, a.name having count(*) > 1 order by a.id desc");
+        return sb.toString();
+    }
+
+    /**
+     * 报表系统生成的大sql，长度大约为 targetLength
+     */
+    public static String report(int targetLength) {
+        StringBuilder sb = new StringBuilder(targetLength + 256);
+        sb.append("select r.org_id,\n r.org_name");
+        int i = 0;
+        while (sb.length() < targetLength / 2) {
+            sb.append(",\n sum(case when r.item_code = 'I").append(i).append("' then r.amount else 0 end) as item_").append(i);
+            i++;
+        }
+        sb.append("\n from t_report r\n left join t_org o on r.org_id = o.id\n inner join t_item it on r.item_code = it.code\n where r.report_date between '2019-01-01' and '2019-12-31'");
+        int j = 0;
+        while (sb.length() < targetLength) {
+            sb.append("\n and (r.type_").append(j).append(" is null or r.type_").append(j)
+                    .append(" in (select t.code from t_type t where t.level = ").append(j).append("))");
+            j++;
+        }
+        sb.append("\n group by r.org_id, r.org_name\n order by r.org_id");
+        return sb.toString();
+    }
+}
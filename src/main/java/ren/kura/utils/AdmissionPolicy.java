@@ -0,0 +1,85 @@
+package ren.kura.utils;
+
+import org.quartz.Trigger;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 17:00
+ * @Description: 一个任务组的限流配置，通过 ScheduledUtils.setAdmissionPolicy 设置
+ * 添加任务时使用 priority 和 jitterMillis；触发时由 JobAdmissionController 按 permitsPerSecond、burst 和 maxConcurrent 推迟超过限制的任务
+ */
+public final class AdmissionPolicy {
+
+    /**
+     * 每秒允许开始执行的任务数量，0 为不限制
+     */
+    private final double permitsPerSecond;
+
+    /**
+     * 令牌桶的容量，即空闲之后允许同时开始执行的任务数量
+     */
+    private final int burst;
+
+    /**
+     * 同时执行的任务数量上限，0 为不限制
+     */
+    private final int maxConcurrent;
+
+    /**
+     * 触发器的优先级，同一时间触发并且线程不够时优先级高的先执行
+     */
+    private final int priority;
+
+    /**
+     * 触发时间随机推迟的最大毫秒数，把同一时间触发的任务分散开，0 为不推迟
+     */
+    private final long jitterMillis;
+
+    public AdmissionPolicy(double permitsPerSecond, int burst, int maxConcurrent, int priority, long jitterMillis) {
+        if (permitsPerSecond < 0 || burst < 0 || maxConcurrent < 0 || jitterMillis < 0) {
+            throw new IllegalArgumentException("permitsPerSecond, burst, maxConcurrent and jitterMillis must not be negative");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.maxConcurrent = maxConcurrent;
+        this.priority = priority;
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * 只限制速率，使用默认的优先级，不推迟触发时间
+     */
+    public AdmissionPolicy(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, 0, Trigger.DEFAULT_PRIORITY, 0);
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getJitterMillis() {
+        return jitterMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionPolicy{permitsPerSecond=" + permitsPerSecond
+                + ", burst=" + burst
+                + ", maxConcurrent=" + maxConcurrent
+                + ", priority=" + priority
+                + ", jitterMillis=" + jitterMillis + "}";
+    }
+}
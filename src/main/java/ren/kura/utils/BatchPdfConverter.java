@@ -0,0 +1,511 @@
+package ren.kura.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 19:00
+ * @Description: 批量转换一个目录下的文件，目标目录保持相同的目录结构，扩展名改为 .pdf
+ * 文件交给 PdfConversionService，同时转换的数量等于进程池的进程数量，队列满了时等待，不会一次提交几千个文件
+ * 每个文件转换结束时写一行进度日志（journal），中断之后再次运行时跳过日志中已经成功、并且源文件没有修改过的文件；失败的文件会重试
+ * 目标文件存在但是日志中没有记录的文件会重新转换，可能是中断时只写了一半；日志中成功但是目标文件不存在的文件也会重新转换
+ * 同一个目录下只有扩展名不同的文件（report.doc 和 report.xls）保留源文件的扩展名（report.doc.pdf、report.xls.pdf），不会互相覆盖
+ * 目标目录和源目录相同时，源目录中是这次转换的目标文件的 pdf 不计入 alreadyPdf
+ *
+ *     java ren.kura.utils.BatchPdfConverter D://archive D://archive-pdf "C:/Program Files (x86)/OpenOffice 4/program/" 4
+ */
+public class BatchPdfConverter {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(BatchPdfConverter.class);
+
+    private static final String PDF_FORMAT = "pdf";
+
+    private static final String JOURNAL_NAME = ".pdf-convert.journal";
+
+    private static final String OK = "OK";
+
+    private static final String FAIL = "FAIL";
+
+    private final PdfConversionService service;
+
+    private final File sourceDir;
+
+    private final File targetDir;
+
+    private File journalFile;
+
+    private Set<String> extensions = new HashSet<>(Arrays.asList(
+            "doc", "docx", "xls", "xlsx", "ppt", "pptx", "rtf", "odt", "ods", "odp", "wps", "txt"));
+
+    /**
+     * 一个文件的超时时间（毫秒）
+     */
+    private long timeoutMillis = 120000L;
+
+    /**
+     * 每转换多少个文件打印一次进度
+     */
+    private int progressInterval = 100;
+
+    /**
+     * @param service   转换使用的服务，同时转换的数量由它的进程池决定
+     * @param sourceDir 需要转换的目录
+     * @param targetDir 转换后的文件保存的目录，可以和 sourceDir 相同
+     */
+    public BatchPdfConverter(PdfConversionService service, File sourceDir, File targetDir) {
+        this.service = service;
+        this.sourceDir = sourceDir.getAbsoluteFile();
+        this.targetDir = targetDir.getAbsoluteFile();
+        this.journalFile = new File(this.targetDir, JOURNAL_NAME);
+    }
+
+    /**
+     * @param journalFile 进度日志，默认在目标目录下的 .pdf-convert.journal
+     */
+    public void setJournalFile(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * @param extensions 需要转换的扩展名，不区分大小写
+     */
+    public void setExtensions(Set<String> extensions) {
+        Set<String> lower = new HashSet<>();
+        for (String extension : extensions) {
+            lower.add(extension.toLowerCase());
+        }
+        this.extensions = lower;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public void setProgressInterval(int progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * 转换目录下所有的文件，所有文件结束之后返回
+     *
+     * @return 转换的统计和失败的文件
+     */
+    public Report run() throws IOException, InterruptedException {
+        final Report report = new Report();
+        Map<String, String> done = loadJournal();
+        Map<File, File> targets = plan(report);
+        logger.info("batch convert {} -> {}: {} files, {} already converted in journal",
+                sourceDir, targetDir, report.getTotal(), done.size());
+
+        //回调结束之后释放，Future.get 返回时回调可能还没有写完日志
+        final Semaphore completed = new Semaphore(0);
+        List<Future<ConversionResult>> futures = new ArrayList<>();
+        boolean finished = false;
+        try (final Writer journal = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(journalFile, true), "UTF-8"))) {
+            try {
+                for (Map.Entry<File, File> entry : targets.entrySet()) {
+                    File file = entry.getKey();
+                    File target = entry.getValue();
+                    if (alreadyConverted(done, file, target)) {
+                        report.skipped.incrementAndGet();
+                        continue;
+                    }
+                    final String path = relativePath(file);
+                    final String version = version(file);
+                    final long size = file.length();
+                    ConversionCallback callback = new ConversionCallback() {
+                        @Override
+                        public void onComplete(ConversionResult result) {
+                            try {
+                                if (result.isSuccess()) {
+                                    report.converted(size);
+                                    writeJournal(journal, OK + "\t" + path + "\t" + version);
+                                } else {
+                                    String reason = result.getStatus()
+                                            + (result.getError() == null ? "" : ": " + result.getError().getMessage());
+                                    report.failed(path, reason);
+                                    writeJournal(journal, FAIL + "\t" + path + "\t" + reason.replace('\t', ' ').replace('\n', ' '));
+                                }
+                                report.progress(progressInterval);
+                            } finally {
+                                completed.release();
+                            }
+                        }
+                    };
+                    futures.add(submit(file, target, callback));
+                }
+                completed.acquire(futures.size());
+                finished = true;
+            } finally {
+                if (!finished) {
+                    //提交或者等待时被中断、服务已经关闭：取消还没有结束的转换，等所有回调写完日志之后再关闭日志
+                    for (Future<ConversionResult> future : futures) {
+                        future.cancel(true);
+                    }
+                    completed.acquireUninterruptibly(futures.size());
+                }
+            }
+        }
+        report.finish();
+        logger.info("batch convert finished: {}", report);
+        return report;
+    }
+
+    /**
+     * 队列满了时等待，直到可以提交
+     */
+    private Future<ConversionResult> submit(File file, File target, ConversionCallback callback) throws InterruptedException {
+        while (true) {
+            try {
+                return service.submit(file, target, timeoutMillis, 1000L, callback);
+            } catch (RejectedExecutionException e) {
+                if (service.isShutdown()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static String version(File file) {
+        return file.length() + "," + file.lastModified();
+    }
+
+    /**
+     * @param done loadJournal 读取的进度
+     * @return 日志中记录转换成功、源文件没有修改过、并且目标文件存在
+     */
+    boolean alreadyConverted(Map<String, String> done, File file, File target) {
+        return version(file).equals(done.get(relativePath(file))) && target.exists();
+    }
+
+    /**
+     * 读取之前运行的进度，同一个文件以最后一行为准；最后一行没有写完时补上换行，这次追加的日志从新的一行开始
+     *
+     * @return 成功转换的文件和转换时源文件的大小、修改时间
+     */
+    Map<String, String> loadJournal() throws IOException {
+        Map<String, String> done = new HashMap<>();
+        if (!journalFile.exists()) {
+            File parent = journalFile.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            return done;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 3);
+                if (fields.length < 3) {
+                    //中断时写了一半的行
+                    continue;
+                }
+                if (OK.equals(fields[0])) {
+                    done.put(fields[1], fields[2]);
+                } else {
+                    done.remove(fields[1]);
+                }
+            }
+        }
+        terminateJournal();
+        return done;
+    }
+
+    private void terminateJournal() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            long length = file.length();
+            if (length == 0) {
+                return;
+            }
+            file.seek(length - 1);
+            if (file.read() != '\n') {
+                file.write('\n');
+            }
+        }
+    }
+
+    private static void writeJournal(Writer journal, String line) {
+        synchronized (journal) {
+            try {
+                journal.write(line);
+                journal.write('\n');
+                //每一行都写入磁盘，中断之后最多丢失正在转换的文件
+                journal.flush();
+            } catch (IOException e) {
+                logger.warn("write journal error: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 遍历源目录，计算每个文件的目标文件；不是这次转换的目标文件的 pdf 计入 alreadyPdf
+     *
+     * @return 需要转换的源文件和目标文件
+     */
+    Map<File, File> plan(Report report) throws IOException {
+        List<File> pdfs = new ArrayList<>();
+        List<File> files = listFiles(report, pdfs);
+        Map<File, File> targets = targetFiles(files, report);
+        //目标目录和源目录相同时，之前转换生成的 pdf 也在源目录中，不是用户原有的 pdf
+        Set<String> produced = new HashSet<>();
+        for (File target : targets.values()) {
+            produced.add(target.getPath().toLowerCase());
+        }
+        for (File pdf : pdfs) {
+            if (!produced.contains(pdf.getPath().toLowerCase())) {
+                report.alreadyPdf.incrementAndGet();
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * 遍历源目录，pdf 文件放到 pdfs 中，不需要转换
+     */
+    private List<File> listFiles(final Report report, final List<File> pdfs) throws IOException {
+        final List<File> files = new ArrayList<>();
+        final Path targetPath = targetDir.toPath();
+        Files.walkFileTree(sourceDir.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                //目标目录在源目录下面时不转换已经生成的pdf
+                if (!dir.equals(sourceDir.toPath()) && dir.equals(targetPath)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                String name = path.getFileName().toString();
+                String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+                if (PDF_FORMAT.equals(extension)) {
+                    pdfs.add(path.toFile());
+                } else if (attrs.isRegularFile() && extensions.contains(extension) && !name.startsWith("~$")) {
+                    files.add(path.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path, IOException e) {
+                report.failed(path.toString(), "read error: " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        report.total.set(files.size());
+        return files;
+    }
+
+    private String relativePath(File file) {
+        return sourceDir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * 计算每个文件的目标文件，目标文件重复的文件保留源文件的扩展名；保留扩展名之后仍然重复的文件记为失败
+     * 不区分大小写比较，Windows 上 Report.doc 和 report.xls 也是同一个目标文件
+     *
+     * @return 源文件和目标文件，顺序和 files 相同
+     */
+    private Map<File, File> targetFiles(List<File> files, Report report) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (File file : files) {
+            String key = targetPath(relativePath(file), false).toLowerCase();
+            Integer count = counts.get(key);
+            counts.put(key, count == null ? 1 : count + 1);
+        }
+        Map<File, File> targets = new LinkedHashMap<>();
+        Set<String> used = new HashSet<>();
+        for (File file : files) {
+            String path = relativePath(file);
+            String target = targetPath(path, false);
+            if (counts.get(target.toLowerCase()) > 1) {
+                target = targetPath(path, true);
+            }
+            if (!used.add(target.toLowerCase())) {
+                report.failed(path, "target file conflict: " + target);
+                continue;
+            }
+            targets.put(file, new File(targetDir, target));
+        }
+        return targets;
+    }
+
+    /**
+     * @param keepExtension 是否保留源文件的扩展名，report.doc 转换为 report.doc.pdf
+     */
+    private static String targetPath(String path, boolean keepExtension) {
+        int dot = path.lastIndexOf('.');
+        boolean strip = !keepExtension && dot > path.lastIndexOf('/');
+        return (strip ? path.substring(0, dot) : path) + "." + PDF_FORMAT;
+    }
+
+    /**
+     * 一次批量转换的统计
+     */
+    public static class Report {
+        private final long start = System.currentTimeMillis();
+
+        private volatile long end;
+
+        private final AtomicInteger total = new AtomicInteger();
+
+        private final AtomicInteger converted = new AtomicInteger();
+
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        private final AtomicInteger alreadyPdf = new AtomicInteger();
+
+        private final AtomicInteger finished = new AtomicInteger();
+
+        private final AtomicLong convertedBytes = new AtomicLong();
+
+        private final Map<String, String> failures = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+
+        void converted(long bytes) {
+            converted.incrementAndGet();
+            convertedBytes.addAndGet(bytes);
+        }
+
+        void failed(String path, String reason) {
+            failures.put(path, reason);
+            logger.warn("convert {} failed: {}", path, reason);
+        }
+
+        void progress(int interval) {
+            int count = finished.incrementAndGet();
+            if (interval > 0 && count % interval == 0) {
+                logger.info("batch convert progress: {}", this);
+            }
+        }
+
+        void finish() {
+            end = System.currentTimeMillis();
+        }
+
+        /**
+         * @return 需要转换的文件数量，不包括 pdf 文件
+         */
+        public int getTotal() {
+            return total.get();
+        }
+
+        public int getConverted() {
+            return converted.get();
+        }
+
+        /**
+         * @return 之前已经转换过、这次跳过的文件数量
+         */
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        public int getAlreadyPdf() {
+            return alreadyPdf.get();
+        }
+
+        public int getFailed() {
+            return failures.size();
+        }
+
+        /**
+         * @return 失败的文件（相对源目录的路径）和原因
+         */
+        public Map<String, String> getFailures() {
+            synchronized (failures) {
+                return new LinkedHashMap<>(failures);
+            }
+        }
+
+        public long getElapsedMillis() {
+            return (end > 0 ? end : System.currentTimeMillis()) - start;
+        }
+
+        /**
+         * @return 每分钟转换的文件数量
+         */
+        public double getDocsPerMinute() {
+            return converted.get() * 60000.0 / Math.max(1, getElapsedMillis());
+        }
+
+        /**
+         * @return 每分钟转换的源文件大小（MB）
+         */
+        public double getMbPerMinute() {
+            return convertedBytes.get() / (1024.0 * 1024.0) * 60000.0 / Math.max(1, getElapsedMillis());
+        }
+
+        @Override
+        public String toString() {
+            return "Report{total=" + getTotal()
+                    + ", converted=" + getConverted()
+                    + ", skipped=" + getSkipped()
+                    + ", alreadyPdf=" + getAlreadyPdf()
+                    + ", failed=" + getFailed()
+                    + ", elapsed=" + getElapsedMillis() / 1000 + "s"
+                    + ", docs/min=" + String.format("%.1f", getDocsPerMinute())
+                    + ", MB/min=" + String.format("%.1f", getMbPerMinute()) + "}";
+        }
+    }
+
+    /**
+     * 命令行批量转换
+     *
+     * @param args 源目录 目标目录 [openOffice 安装目录] [进程数量]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("用法: BatchPdfConverter 源目录 目标目录 [openOffice安装目录] [进程数量]");
+            return;
+        }
+        String officeHome = args.length > 2 ? args[2] : "C:/Program Files (x86)/OpenOffice 4/program/";
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        OfficeProcessPool pool = OfficeProcessPool.sockets(officeHome, "127.0.0.1", 8100, size);
+        PdfConversionService service = new PdfConversionService(pool, size * 2, 120000L);
+        try {
+            Report report = new BatchPdfConverter(service, new File(args[0]), new File(args[1])).run();
+            System.out.println(report);
+            for (Map.Entry<String, String> failure : report.getFailures().entrySet()) {
+                System.out.println("失败: " + failure.getKey() + " " + failure.getValue());
+            }
+        } finally {
+            service.shutdown(0);
+            pool.stop();
+        }
+    }
+}
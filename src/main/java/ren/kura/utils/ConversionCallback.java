@@ -0,0 +1,16 @@
+package ren.kura.utils;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 18:00
+ * @Description: PdfConversionService 每个转换结束时回调一次，包括失败、超时和取消
+ * 在转换线程中调用，取消时在调用 cancel 的线程中调用，不要做耗时的操作
+ */
+public interface ConversionCallback {
+
+    /**
+     * @param result 转换的结果
+     */
+    void onComplete(ConversionResult result);
+}
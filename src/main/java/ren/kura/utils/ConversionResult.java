@@ -0,0 +1,109 @@
+package ren.kura.utils;
+
+import java.io.File;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 18:00
+ * @Description: PdfConversionService 一次转换的结果，getCode 和 OpenOfficePdfConvert.convertFileToPdf 的返回值一致
+ */
+public final class ConversionResult {
+
+    public enum Status {
+        SUCCESS(1),
+        /**
+         * 相同内容的文件已经转换过，使用 PdfConversionCache 中的结果
+         */
+        CACHED(1),
+        ALREADY_PDF(3),
+        NOT_EXIST(-2),
+        FAILED(-1),
+        /**
+         * 转换超时，进程被结束之后重启
+         */
+        TIMEOUT(-1),
+        CANCELLED(-1);
+
+        private final int code;
+
+        Status(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    private final File source;
+
+    private final File target;
+
+    private final Status status;
+
+    /**
+     * 在队列中等待的时间（毫秒）
+     */
+    private final long queuedMillis;
+
+    /**
+     * 转换的时间（毫秒），包括借出进程的时间
+     */
+    private final long convertMillis;
+
+    private final Throwable error;
+
+    ConversionResult(File source, File target, Status status, long queuedMillis, long convertMillis, Throwable error) {
+        this.source = source;
+        this.target = target;
+        this.status = status;
+        this.queuedMillis = queuedMillis;
+        this.convertMillis = convertMillis;
+        this.error = error;
+    }
+
+    public File getSource() {
+        return source;
+    }
+
+    public File getTarget() {
+        return target;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getCode() {
+        return status.getCode();
+    }
+
+    public boolean isSuccess() {
+        return status == Status.SUCCESS || status == Status.CACHED || status == Status.ALREADY_PDF;
+    }
+
+    public long getQueuedMillis() {
+        return queuedMillis;
+    }
+
+    public long getConvertMillis() {
+        return convertMillis;
+    }
+
+    /**
+     * @return 失败的原因，成功时为 null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ConversionResult{" + source + " -> " + target
+                + ", status=" + status
+                + ", queuedMillis=" + queuedMillis
+                + ", convertMillis=" + convertMillis
+                + (error == null ? "" : ", error=" + error.getMessage()) + "}";
+    }
+}
@@ -0,0 +1,491 @@
+package ren.kura.utils;
+
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.impl.matchers.EverythingMatcher;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.quartz.simpl.PropertySettingJobFactory;
+import org.quartz.spi.JobFactory;
+import org.quartz.spi.ThreadPool;
+import org.quartz.spi.TriggerFiredBundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 11:30
+ * @Description: 用于等待 IO 的任务的 Quartz 线程池，替换固定线程数量的 SimpleThreadPool
+ * 同时执行的任务数量上限为 maxThreads，线程按需创建，空闲 keepAliveSeconds 秒之后回收；运行环境支持虚拟线程并且 virtualThreads 为 true 时每个任务使用一个虚拟线程
+ * 可以限制每个任务组同时执行的任务数量，超过上限的任务在组内排队，不占用总的名额，同组的任务完成之后直接接着执行
+ * 在 quartz.properties 中配置：
+ * org.quartz.threadPool.class: ren.kura.utils.ElasticThreadPool
+ * org.quartz.threadPool.maxThreads: 500
+ * org.quartz.threadPool.groupLimits: report=20,convert=4
+ * SimpleThreadPool 的 threadCount 和 threadPriority 也可以使用，没有配置 maxThreads 时 threadCount 作为 maxThreads
+ * 任务组从 FiredJobFactory 记录的触发信息中读取，ScheduleManager 创建调度器时调用 install 注册；
+ * 使用自定义的 JobFactory（比如 Spring 的 SpringBeanJobFactory）时，用 new FiredJobFactory(factory) 包装之后再设置，否则不限制任务组
+ * 不等待任务完成关闭时，组内排队的任务在关闭的线程中被否决，触发器重新放回 JobStore，下次启动之后再触发
+ */
+public class ElasticThreadPool implements ThreadPool {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(ElasticThreadPool.class);
+
+    /**
+     * FiredJobFactory 创建任务实例时记录的触发信息；QuartzSchedulerThread 创建任务之后在同一个线程中调用 runInThread
+     */
+    private static final ThreadLocal<TriggerFiredBundle> FIRED = new ThreadLocal<>();
+
+    /**
+     * 关闭时在当前线程中执行排队的任务，AbandonedJobVeto 否决这些任务
+     */
+    private static final ThreadLocal<Boolean> ABANDONING = new ThreadLocal<>();
+
+    private static final int DEFAULT_MAX_THREADS = 100;
+
+    /**
+     * 同时执行的任务数量上限，没有配置时使用 threadCount，都没有配置时为 DEFAULT_MAX_THREADS
+     */
+    private int maxThreads = 0;
+
+    /**
+     * SimpleThreadPool 的配置项，从 SimpleThreadPool 切换过来时不需要删除
+     */
+    private int threadCount = 0;
+
+    private int threadPriority = Thread.NORM_PRIORITY;
+
+    private int keepAliveSeconds = 60;
+
+    private boolean virtualThreads = false;
+
+    private boolean makeThreadsDaemons = false;
+
+    private boolean threadsInheritContextClassLoaderOfInitializingThread = false;
+
+    private int defaultGroupLimit = 0;
+
+    private String groupLimits;
+
+    private String instanceName = "QuartzScheduler";
+
+    private String instanceId;
+
+    private final Object lock = new Object();
+
+    /**
+     * 还可以执行的任务数量
+     */
+    private int available;
+
+    private final Map<String, Integer> limitByGroup = new HashMap<>();
+
+    private final Map<String, GroupState> groups = new HashMap<>();
+
+    private boolean shutdown = false;
+
+    private ExecutorService executor;
+
+    private ClassLoader contextClassLoader;
+
+    /**
+     * 配置了任务组的上限但是没有注册 FiredJobFactory 时只提示一次
+     */
+    private boolean missingFactoryLogged = false;
+
+    @Override
+    public void initialize() throws SchedulerConfigException {
+        if (maxThreads == 0) {
+            maxThreads = threadCount > 0 ? threadCount : DEFAULT_MAX_THREADS;
+        }
+        if (maxThreads <= 0) {
+            throw new SchedulerConfigException("maxThreads must be positive");
+        }
+        if (threadPriority < Thread.MIN_PRIORITY || threadPriority > Thread.MAX_PRIORITY) {
+            throw new SchedulerConfigException("threadPriority must be between " + Thread.MIN_PRIORITY + " and " + Thread.MAX_PRIORITY);
+        }
+        if (groupLimits != null) {
+            for (String item : groupLimits.split(",")) {
+                if (item.trim().isEmpty()) {
+                    continue;
+                }
+                int index = item.indexOf('=');
+                if (index <= 0) {
+                    throw new SchedulerConfigException("invalid groupLimits item: " + item);
+                }
+                try {
+                    limitByGroup.put(item.substring(0, index).trim(), Integer.parseInt(item.substring(index + 1).trim()));
+                } catch (NumberFormatException e) {
+                    throw new SchedulerConfigException("invalid groupLimits item: " + item, e);
+                }
+            }
+        }
+        if (threadsInheritContextClassLoaderOfInitializingThread) {
+            contextClassLoader = Thread.currentThread().getContextClassLoader();
+        }
+        available = maxThreads;
+        executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (executor == null) {
+            if (virtualThreads) {
+                logger.warn("virtual threads are not supported by this JVM, use elastic platform threads");
+            }
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, keepAliveSeconds, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程的线程池，运行环境不支持时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 注册 FiredJobFactory 和 AbandonedJobVeto，调度器使用 ElasticThreadPool 时由 ScheduleManager 调用
+     */
+    public static void install(Scheduler sched) throws SchedulerException {
+        sched.setJobFactory(new FiredJobFactory(new PropertySettingJobFactory()));
+        sched.getListenerManager().addTriggerListener(new AbandonedJobVeto(), EverythingMatcher.allTriggers());
+    }
+
+    /**
+     * @return FiredJobFactory 刚刚记录的任务组，没有记录时为null
+     */
+    private static String takeFiredGroup() {
+        TriggerFiredBundle bundle = FIRED.get();
+        FIRED.remove();
+        return bundle == null ? null : bundle.getJobDetail().getKey().getGroup();
+    }
+
+    private int limitOf(String group) {
+        Integer limit = limitByGroup.get(group);
+        return limit == null ? defaultGroupLimit : limit;
+    }
+
+    @Override
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+        String group = takeFiredGroup();
+        synchronized (lock) {
+            if (group == null && !missingFactoryLogged && (defaultGroupLimit > 0 || !limitByGroup.isEmpty())) {
+                missingFactoryLogged = true;
+                logger.warn("FiredJobFactory is not installed, group limits are disabled");
+            }
+            while (available == 0 && !shutdown) {
+                try {
+                    lock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            if (shutdown) {
+                return false;
+            }
+            int limit = group == null ? 0 : limitOf(group);
+            if (limit > 0) {
+                GroupState state = groups.get(group);
+                if (state == null) {
+                    state = new GroupState();
+                    groups.put(group, state);
+                }
+                if (state.running >= limit) {
+                    //组内排队，不占用总的名额
+                    state.pending.add(runnable);
+                    return true;
+                }
+                state.running++;
+            }
+            available--;
+        }
+        dispatch(new Worker(runnable, group));
+        return true;
+    }
+
+    private void dispatch(Worker worker) {
+        try {
+            executor.execute(worker);
+        } catch (RejectedExecutionException e) {
+            logger.warn("job rejected after shutdown");
+            worker.release();
+        }
+    }
+
+    @Override
+    public int blockForAvailableThreads() {
+        synchronized (lock) {
+            while (available == 0 && !shutdown) {
+                try {
+                    lock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            return available;
+        }
+    }
+
+    @Override
+    public void shutdown(boolean waitForJobsToComplete) {
+        List<Runnable> abandoned = new ArrayList<>();
+        synchronized (lock) {
+            shutdown = true;
+            if (!waitForJobsToComplete) {
+                for (GroupState state : groups.values()) {
+                    abandoned.addAll(state.pending);
+                    state.pending.clear();
+                }
+            }
+            lock.notifyAll();
+            if (waitForJobsToComplete) {
+                while (available < maxThreads) {
+                    try {
+                        lock.wait(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+        //已经交给线程池的任务不能直接丢掉，否则触发器一直不会完成；在当前线程中走否决的流程，JobStore 关闭之前完成
+        for (Runnable runnable : abandoned) {
+            ABANDONING.set(Boolean.TRUE);
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                logger.error("error while abandoning job", e);
+            } finally {
+                ABANDONING.remove();
+            }
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public int getPoolSize() {
+        return maxThreads;
+    }
+
+    /**
+     * @return 正在执行的任务数量
+     */
+    public int getRunningCount() {
+        synchronized (lock) {
+            return maxThreads - available;
+        }
+    }
+
+    /**
+     * @return 因为任务组的上限在排队的任务数量
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            int count = 0;
+            for (GroupState state : groups.values()) {
+                count += state.pending.size();
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+        this.instanceId = schedInstId;
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.instanceName = schedName;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * @param threadCount 和 SimpleThreadPool 的配置相同，没有配置 maxThreads 时作为 maxThreads
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * @param threadPriority 普通线程的优先级，虚拟线程不支持优先级
+     */
+    public void setThreadPriority(int threadPriority) {
+        this.threadPriority = threadPriority;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public void setMakeThreadsDaemons(boolean makeThreadsDaemons) {
+        this.makeThreadsDaemons = makeThreadsDaemons;
+    }
+
+    public void setThreadsInheritContextClassLoaderOfInitializingThread(boolean inherit) {
+        this.threadsInheritContextClassLoaderOfInitializingThread = inherit;
+    }
+
+    /**
+     * @param defaultGroupLimit 没有单独配置的任务组同时执行的任务数量上限，0为不限制
+     */
+    public void setDefaultGroupLimit(int defaultGroupLimit) {
+        this.defaultGroupLimit = defaultGroupLimit;
+    }
+
+    /**
+     * @param groupLimits 每个任务组同时执行的任务数量上限，格式为 group1=5,group2=10
+     */
+    public void setGroupLimits(String groupLimits) {
+        this.groupLimits = groupLimits;
+    }
+
+    /**
+     * 创建任务实例之后记录触发信息，runInThread 用来读取任务组
+     */
+    public static class FiredJobFactory implements JobFactory {
+        private final JobFactory delegate;
+
+        public FiredJobFactory(JobFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Job newJob(TriggerFiredBundle bundle, Scheduler scheduler) throws SchedulerException {
+            Job job = delegate.newJob(bundle, scheduler);
+            FIRED.set(bundle);
+            return job;
+        }
+    }
+
+    /**
+     * 否决关闭时还在组内排队的任务，并且为任务加回一个立刻触发的触发器；只触发一次的触发器被否决之后会被删除，任务也会被删除
+     * 没有注册时排队的任务在关闭的线程中直接执行
+     */
+    static class AbandonedJobVeto extends TriggerListenerSupport {
+        @Override
+        public String getName() {
+            return "ElasticThreadPool.AbandonedJobVeto";
+        }
+
+        @Override
+        public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+            if (ABANDONING.get() == null) {
+                return false;
+            }
+            try {
+                JobAdmissionController.defer(context.getScheduler(), trigger, context.getFireInstanceId(), 0, false);
+            } catch (SchedulerException e) {
+                logger.warn("keep abandoned trigger {} error: {}", trigger.getKey(), e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 一个任务组的执行状态，只在 lock 中访问
+     */
+    private static class GroupState {
+        private int running = 0;
+        private final Deque<Runnable> pending = new ArrayDeque<>();
+    }
+
+    private class Worker implements Runnable {
+        private final Runnable runnable;
+        private final String group;
+
+        Worker(Runnable runnable, String group) {
+            this.runnable = runnable;
+            this.group = group;
+        }
+
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            if (contextClassLoader != null) {
+                thread.setContextClassLoader(contextClassLoader);
+            }
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                logger.error("error while executing job", e);
+            } finally {
+                thread.setContextClassLoader(previous);
+                release();
+            }
+        }
+
+        /**
+         * 任务结束：同组有排队的任务时直接把名额交给它，否则归还名额
+         */
+        void release() {
+            Runnable next = null;
+            synchronized (lock) {
+                GroupState state = group == null ? null : groups.get(group);
+                if (state != null) {
+                    next = state.pending.poll();
+                    if (next == null) {
+                        state.running--;
+                        if (state.running == 0) {
+                            groups.remove(group);
+                        }
+                    }
+                }
+                if (next == null) {
+                    available++;
+                    lock.notifyAll();
+                }
+            }
+            if (next != null) {
+                dispatch(new Worker(next, group));
+            }
+        }
+    }
+
+    private class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, instanceName + "_Worker-" + count.incrementAndGet());
+            thread.setDaemon(makeThreadsDaemons);
+            thread.setPriority(threadPriority);
+            return thread;
+        }
+    }
+}
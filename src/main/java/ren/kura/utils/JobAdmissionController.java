@@ -0,0 +1,283 @@
+package ren.kura.utils;
+
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobListener;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.TriggerListener;
+import org.quartz.impl.matchers.EverythingMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 17:00
+ * @Description: 按任务组限制任务开始执行的速率（令牌桶）和同时执行的数量，作为 TriggerListener 注册到 ScheduleManager 创建的调度器上，不需要修改任务类
+ * 超过限制的任务不在线程中等待：vetoJobExecution 否决这次执行，同时为这个任务加一个只触发一次的触发器，在预约的令牌可用时再触发，线程立刻还给线程池
+ * 最后一次触发的触发器（只触发一次的触发器）用同一个 key 替换，任务不会因为没有触发器被删除，修改和删除任务时仍然能找到；会继续触发的触发器另外加一个触发器
+ * 推迟的触发器已经预约了令牌，再次触发时只检查并发数量，并发数量已满时再推迟 RETRY_MILLIS 左右；没有配置的任务组不受影响
+ */
+public class JobAdmissionController implements TriggerListener, JobListener {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(JobAdmissionController.class);
+
+    /**
+     * 推迟的触发器的 JobDataMap 中的标记，表示已经预约了令牌；值为字符串，JDBC JobStore 使用 useProperties 时也可以保存
+     */
+    static final String RESERVED_KEY = "admissionReserved";
+
+    /**
+     * 会继续触发的触发器推迟时，另外添加的触发器名称的后缀
+     */
+    private static final String DEFERRED_SUFFIX = "#deferred-";
+
+    /**
+     * 并发数量已满时推迟的时间，实际推迟 RETRY_MILLIS 到 2 倍之间，推迟的任务不会同时再次触发
+     */
+    static final long RETRY_MILLIS = 1000L;
+
+    private final ConcurrentMap<String, Gate> gates = new ConcurrentHashMap<>();
+
+    /**
+     * 已经占用并发数量的任务，key为 fireInstanceId，任务完成或者被否决时释放
+     */
+    private final ConcurrentMap<String, Gate> admitted = new ConcurrentHashMap<>();
+
+    private volatile boolean closed = false;
+
+    /**
+     * 注册监听器，调度器重新创建之后需要重新注册
+     */
+    void install(Scheduler sched) throws org.quartz.SchedulerException {
+        sched.getListenerManager().addTriggerListener(this, EverythingMatcher.allTriggers());
+        sched.getListenerManager().addJobListener(this, EverythingMatcher.allJobs());
+        closed = false;
+    }
+
+    /**
+     * 停止调度器时放行所有任务，不再推迟
+     */
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * @param group  任务组
+     * @param policy 限流配置，为 null 时取消限制；已经推迟的任务再次触发时按新的配置检查
+     */
+    public void setPolicy(String group, AdmissionPolicy policy) {
+        Gate old = policy == null ? gates.remove(group) : gates.put(group, new Gate(policy));
+        if (old != null) {
+            old.retire();
+        }
+    }
+
+    /**
+     * @return 任务组的限流配置，没有配置时返回 null
+     */
+    public AdmissionPolicy getPolicy(String group) {
+        Gate gate = gates.get(group);
+        return gate == null ? null : gate.policy;
+    }
+
+    @Override
+    public String getName() {
+        return "JobAdmissionController";
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        Gate gate = gates.get(context.getJobDetail().getKey().getGroup());
+        if (gate == null) {
+            return false;
+        }
+        long delay = gate.tryAdmit(trigger.getJobDataMap().containsKey(RESERVED_KEY));
+        if (delay > 0) {
+            try {
+                defer(context.getScheduler(), trigger, context.getFireInstanceId(), delay, true);
+                return true;
+            } catch (SchedulerException e) {
+                //推迟失败时直接执行，不能丢掉任务
+                logger.warn("defer trigger {} error, execute now: {}", trigger.getKey(), e.getMessage());
+                gate.admitNow();
+            }
+        }
+        admitted.put(context.getFireInstanceId(), gate);
+        return false;
+    }
+
+    /**
+     * 添加一个在 delayMillis 之后只触发一次的触发器，优先级和 JobDataMap 和原来的触发器相同；ElasticThreadPool 关闭时也用来保留排队的任务
+     *
+     * @param reserved 是否已经为推迟的触发器预约了令牌
+     */
+    static void defer(Scheduler sched, Trigger trigger, String fireInstanceId, long delayMillis, boolean reserved) throws SchedulerException {
+        JobDataMap data = new JobDataMap(trigger.getJobDataMap());
+        if (reserved) {
+            data.put(RESERVED_KEY, "true");
+        }
+        //最后一次触发时 nextFireTime 已经为 null，否决之后原来的触发器会被删除，用同一个 key 替换
+        boolean last = trigger.getNextFireTime() == null;
+        TriggerKey key = last ? trigger.getKey()
+                : TriggerKey.triggerKey(trigger.getKey().getName() + DEFERRED_SUFFIX + fireInstanceId, trigger.getKey().getGroup());
+        Trigger deferred = TriggerBuilder.newTrigger()
+                .withIdentity(key)
+                .forJob(trigger.getJobKey())
+                .withPriority(trigger.getPriority())
+                .usingJobData(data)
+                .startAt(new Date(System.currentTimeMillis() + delayMillis))
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+                .build();
+        if (!last || sched.rescheduleJob(key, deferred) == null) {
+            sched.scheduleJob(deferred);
+        }
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context, Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+        release(context);
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        release(context);
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+    }
+
+    private void release(JobExecutionContext context) {
+        Gate gate = admitted.remove(context.getFireInstanceId());
+        if (gate != null) {
+            gate.release();
+        }
+    }
+
+    /**
+     * @return 任务组推迟执行的次数，同一个任务推迟多次时计算多次
+     */
+    public long getDeferredCount(String group) {
+        Gate gate = gates.get(group);
+        return gate == null ? 0 : gate.deferredCount();
+    }
+
+    /**
+     * @return 每个任务组的执行数量、放行数量、推迟次数和推迟的总时间
+     */
+    public Map<String, String> getStats() {
+        Map<String, String> stats = new TreeMap<>();
+        for (Map.Entry<String, Gate> entry : gates.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().toString());
+        }
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "JobAdmissionController" + getStats();
+    }
+
+    private final class Gate {
+        private final AdmissionPolicy policy;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+        private int running;
+        private long admittedCount;
+        private long deferredCount;
+        private long deferMillis;
+        private boolean retired;
+
+        Gate(AdmissionPolicy policy) {
+            this.policy = policy;
+            this.tokens = policy.getBurst();
+        }
+
+        /**
+         * 检查令牌和并发数量，不等待；放行之后占用一个并发数量，需要在任务完成之后释放
+         * 没有令牌时预约一个令牌，令牌为负数，推迟的时间按预约的顺序递增，推迟的任务再次触发时不再取令牌
+         *
+         * @param reserved 推迟之前已经预约了令牌
+         * @return 0 为放行，否则为需要推迟的毫秒数
+         */
+        synchronized long tryAdmit(boolean reserved) {
+            if (closed || retired) {
+                admitNow();
+                return 0;
+            }
+            long delay = 0;
+            double rate = policy.getPermitsPerSecond();
+            if (!reserved && rate > 0) {
+                long now = System.nanoTime();
+                tokens = Math.min(policy.getBurst(), tokens + (now - refilledAt) / 1e9 * rate);
+                refilledAt = now;
+                tokens -= 1;
+                delay = (long) Math.ceil(Math.max(0, -tokens) / rate * 1000);
+            }
+            int maxConcurrent = policy.getMaxConcurrent();
+            boolean full = maxConcurrent > 0 && running >= maxConcurrent;
+            if (delay == 0 && !full) {
+                admitNow();
+                return 0;
+            }
+            if (full) {
+                //不知道正在执行的任务什么时候结束，隔一段时间再检查
+                delay = Math.max(delay, RETRY_MILLIS + ThreadLocalRandom.current().nextLong(RETRY_MILLIS));
+            }
+            deferredCount++;
+            deferMillis += delay;
+            return delay;
+        }
+
+        synchronized void admitNow() {
+            running++;
+            admittedCount++;
+        }
+
+        synchronized void release() {
+            running--;
+        }
+
+        synchronized void retire() {
+            retired = true;
+        }
+
+        synchronized long deferredCount() {
+            return deferredCount;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "{running=" + running
+                    + ", admitted=" + admittedCount
+                    + ", deferred=" + deferredCount
+                    + ", deferMillis=" + deferMillis + "}";
+        }
+    }
+}
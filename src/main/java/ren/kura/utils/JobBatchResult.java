@@ -0,0 +1,116 @@
+package ren.kura.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 10:00
+ * @Description: 批量添加定时任务的结果，失败的任务单独记录，不影响其他任务
+ */
+public class JobBatchResult {
+
+    private final int total;
+
+    private int succeeded = 0;
+
+    private final List<Failure> failures = new ArrayList<>();
+
+    JobBatchResult(int total) {
+        this.total = total;
+    }
+
+    void addSucceeded(int count) {
+        succeeded += count;
+    }
+
+    void addFailure(int index, JobSpec spec, String message, Throwable cause) {
+        failures.add(new Failure(index, spec, message, cause));
+    }
+
+    void sortFailures() {
+        Collections.sort(failures, new Comparator<Failure>() {
+            @Override
+            public int compare(Failure o1, Failure o2) {
+                return o1.index < o2.index ? -1 : (o1.index == o2.index ? 0 : 1);
+            }
+        });
+    }
+
+    /**
+     * @return 传入的任务数量
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return 已经保存的任务数量
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return 失败的任务，按传入的顺序排列
+     */
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "JobBatchResult{total=" + total + ", succeeded=" + succeeded + ", failed=" + failures.size() + "}";
+    }
+
+    /**
+     * 一条失败的任务
+     */
+    public static class Failure {
+        private final int index;
+        private final JobSpec spec;
+        private final String message;
+        private final Throwable cause;
+
+        Failure(int index, JobSpec spec, String message, Throwable cause) {
+            this.index = index;
+            this.spec = spec;
+            this.message = message;
+            this.cause = cause;
+        }
+
+        /**
+         * @return 任务在传入的集合中的序号，从0开始
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public JobSpec getSpec() {
+            return spec;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return 保存时的异常，校验失败时为null
+         */
+        public Throwable getCause() {
+            return cause;
+        }
+
+        @Override
+        public String toString() {
+            return "Failure{index=" + index + ", " + spec + ", message=" + message + "}";
+        }
+    }
+}
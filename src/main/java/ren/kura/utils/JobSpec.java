@@ -0,0 +1,81 @@
+package ren.kura.utils;
+
+import java.util.Date;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 10:00
+ * @Description: 批量添加定时任务时的一条任务，参数和 ScheduledUtils.addJob 一致
+ * jobName jobGroupName  triggerName triggerGroupName  都要唯一 同一个定时器四者的名字可以一致
+ */
+public class JobSpec {
+
+    private final String jobName;
+
+    private final String jobGroupName;
+
+    private final String triggerName;
+
+    private final String triggerGroupName;
+
+    private final Class jobClass;
+
+    private final Date startDate;
+
+    private final String jobId;
+
+    /**
+     * @param jobName          任务名
+     * @param jobGroupName     任务组名
+     * @param triggerName      触发器名
+     * @param triggerGroupName 触发器组名
+     * @param jobClass         触发时需要操作的类
+     * @param startDate        触发时间
+     * @param jobId            传入的参数
+     */
+    public JobSpec(String jobName, String jobGroupName, String triggerName, String triggerGroupName,
+                   Class jobClass, Date startDate, String jobId) {
+        this.jobName = jobName;
+        this.jobGroupName = jobGroupName;
+        this.triggerName = triggerName;
+        this.triggerGroupName = triggerGroupName;
+        this.jobClass = jobClass;
+        this.startDate = startDate;
+        this.jobId = jobId;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getJobGroupName() {
+        return jobGroupName;
+    }
+
+    public String getTriggerName() {
+        return triggerName;
+    }
+
+    public String getTriggerGroupName() {
+        return triggerGroupName;
+    }
+
+    public Class getJobClass() {
+        return jobClass;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    @Override
+    public String toString() {
+        return "JobSpec{" + jobGroupName + "." + jobName + ", trigger=" + triggerGroupName + "." + triggerName
+                + ", startDate=" + startDate + ", jobId=" + jobId + "}";
+    }
+}
@@ -0,0 +1,288 @@
+package ren.kura.utils;
+
+import com.artofsolving.jodconverter.DocumentConverter;
+import com.artofsolving.jodconverter.openoffice.connection.OpenOfficeConnection;
+import com.artofsolving.jodconverter.openoffice.connection.PipeOpenOfficeConnection;
+import com.artofsolving.jodconverter.openoffice.connection.SocketOpenOfficeConnection;
+import com.artofsolving.jodconverter.openoffice.converter.StreamOpenOfficeDocumentConverter;
+import com.sun.star.frame.XDesktop;
+import com.sun.star.uno.UnoRuntime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 17:30
+ * @Description: OfficeProcessPool 管理的一个 soffice 进程和它的连接，同一时间只借给一个调用方
+ * 每个进程使用单独的端口或者管道，以及单独的用户目录（-env:UserInstallation），否则后启动的 soffice 会把请求交给已经运行的进程，无法并行转换
+ */
+public class OfficeProcess {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(OfficeProcess.class);
+
+    private final String officeHome;
+
+    /**
+     * 主机和端口，使用管道时端口为 -1
+     */
+    private final String host;
+
+    private final int port;
+
+    /**
+     * 管道名称，使用端口时为 null
+     */
+    private final String pipeName;
+
+    private final File profileDir;
+
+    private volatile Process process;
+
+    private volatile OpenOfficeConnection connection;
+
+    private volatile DocumentConverter converter;
+
+    /**
+     * 当前进程完成的转换次数，重启之后清零
+     */
+    private int conversionCount;
+
+    /**
+     * 转换超时被强制结束，归还时需要重启
+     */
+    private volatile boolean killed;
+
+    private int restartCount;
+
+    /**
+     * 借用这个进程的转换，看门狗和取消只能结束自己的转换正在使用的进程
+     */
+    private Object owner;
+
+    OfficeProcess(String officeHome, String host, int port, String pipeName) {
+        this.officeHome = officeHome;
+        this.host = host;
+        this.port = port;
+        this.pipeName = pipeName;
+        this.profileDir = new File(System.getProperty("java.io.tmpdir"), "office-profile-" + getName());
+    }
+
+    /**
+     * @return 端口号或者管道名称
+     */
+    public String getName() {
+        return pipeName != null ? pipeName : String.valueOf(port);
+    }
+
+    /**
+     * @return 这个进程的转换器，借出期间使用
+     */
+    public DocumentConverter getConverter() {
+        return converter;
+    }
+
+    public OpenOfficeConnection getConnection() {
+        return connection;
+    }
+
+    public int getConversionCount() {
+        return conversionCount;
+    }
+
+    public int getRestartCount() {
+        return restartCount;
+    }
+
+    /**
+     * 启动 soffice 进程，不等待进程可以连接
+     */
+    void launch() throws IOException {
+        String accept = pipeName != null
+                ? "pipe,name=" + pipeName + ";urp;"
+                : "socket,host=" + host + ",port=" + port + ";urp;";
+        if (!profileDir.exists()) {
+            profileDir.mkdirs();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(executable().getPath());
+        command.add("-headless");
+        command.add("-nologo");
+        command.add("-norestore");
+        command.add("-nofirststartwizard");
+        command.add("-accept=" + accept);
+        //soffice 需要 file:/// 开头的地址，File.toURI 只有一个斜杠
+        command.add("-env:UserInstallation=" + profileDir.toURI().toString().replaceFirst("^file:/+", "file:///"));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        //输出写入日志文件，避免缓冲区满了之后进程阻塞
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.appendTo(new File(profileDir, "office.log")));
+        process = builder.start();
+        killed = false;
+        conversionCount = 0;
+    }
+
+    /**
+     * program/soffice（Windows 上是 soffice.exe）只是启动器，它再启动 soffice.bin 然后退出或者等待；
+     * 结束启动器不会结束卡住的 soffice.bin，端口和用户目录的锁仍然被占用，所以直接启动 soffice.bin，没有时才使用 soffice
+     */
+    private File executable() {
+        File bin = new File(officeHome, "soffice.bin");
+        return bin.isFile() ? bin : new File(officeHome, "soffice");
+    }
+
+    /**
+     * 等待进程可以连接，超时之后抛出 ConnectException
+     */
+    void connect(long timeoutMillis) throws ConnectException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            OpenOfficeConnection conn = pipeName != null
+                    ? new PipeOpenOfficeConnection(pipeName)
+                    : new SocketOpenOfficeConnection(host, port);
+            try {
+                conn.connect();
+                connection = conn;
+                converter = new StreamOpenOfficeDocumentConverter(conn);
+                return;
+            } catch (ConnectException e) {
+                if (!isProcessAlive() || System.currentTimeMillis() >= deadline) {
+                    throw new ConnectException("office process " + getName() + " not available: " + e.getMessage());
+                }
+                Thread.sleep(250);
+            }
+        }
+    }
+
+    /**
+     * 关闭连接和进程：先通过 UNO 结束 soffice，进程卡住时直接结束进程
+     */
+    void stop() {
+        OpenOfficeConnection conn = connection;
+        connection = null;
+        converter = null;
+        if (conn != null) {
+            try {
+                if (conn.isConnected() && !killed) {
+                    XDesktop desktop = (XDesktop) UnoRuntime.queryInterface(XDesktop.class, conn.getDesktop());
+                    desktop.terminate();
+                }
+            } catch (Exception e) {
+                logger.debug("office process {} terminate error: {}", getName(), e.getMessage());
+            }
+            try {
+                conn.disconnect();
+            } catch (Exception e) {
+                logger.debug("office process {} disconnect error: {}", getName(), e.getMessage());
+            }
+        }
+        Process p = process;
+        process = null;
+        if (p != null) {
+            p.destroy();
+            try {
+                p.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 重新启动进程并等待可以连接
+     */
+    void restart(long startupTimeoutMillis) throws IOException, InterruptedException {
+        stop();
+        restartCount++;
+        launch();
+        connect(startupTimeoutMillis);
+    }
+
+    /**
+     * 结束进程并断开连接，阻塞在 UNO 调用上的转换会收到异常，只通过 killIfOwnedBy 调用
+     */
+    private void kill() {
+        killed = true;
+        Process p = process;
+        if (p != null) {
+            p.destroy();
+        }
+        OpenOfficeConnection conn = connection;
+        if (conn != null) {
+            try {
+                conn.disconnect();
+            } catch (Exception e) {
+                logger.debug("office process {} disconnect error: {}", getName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 借出之后记录使用这个进程的转换
+     */
+    synchronized void own(Object owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * 归还之前清除使用者，之后 killIfOwnedBy 不会再结束这个进程
+     */
+    synchronized void release(Object owner) {
+        if (this.owner == owner) {
+            this.owner = null;
+        }
+    }
+
+    /**
+     * 进程仍然被 owner 使用时结束进程；和 release 互斥，归还时一定能看到 killed 并重启进程
+     *
+     * @return 是否结束了进程
+     */
+    synchronized boolean killIfOwnedBy(Object owner) {
+        if (owner == null || this.owner != owner) {
+            return false;
+        }
+        kill();
+        return true;
+    }
+
+    boolean isKilled() {
+        return killed;
+    }
+
+    void conversionDone() {
+        conversionCount++;
+    }
+
+    /**
+     * @return 进程在运行并且连接没有断开
+     */
+    boolean isHealthy() {
+        OpenOfficeConnection conn = connection;
+        return !killed && conn != null && conn.isConnected() && isProcessAlive();
+    }
+
+    private boolean isProcessAlive() {
+        Process p = process;
+        if (p == null) {
+            return false;
+        }
+        try {
+            p.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OfficeProcess{" + getName() + ", conversions=" + conversionCount + ", restarts=" + restartCount + "}";
+    }
+}
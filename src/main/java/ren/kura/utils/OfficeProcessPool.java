@@ -0,0 +1,442 @@
+package ren.kura.utils;
+
+import com.artofsolving.jodconverter.DocumentConverter;
+import com.artofsolving.jodconverter.DocumentFormat;
+import com.artofsolving.jodconverter.openoffice.connection.OpenOfficeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 17:30
+ * @Description: 长期运行的 soffice 进程池，每个进程使用一个端口或者管道，启动一次之后重复使用，多个文件可以同时转换
+ * 借出之前检查进程和连接是否正常；转换超过 taskTimeoutMillis 时结束进程，转换 maxConversionsPerProcess 次之后重启进程，避免 soffice 的内存一直增长
+ * 空闲的进程每隔 healthCheckIntervalMillis 检查一次，退出的进程在后台重启
+ *
+ *     OfficeProcessPool pool = OfficeProcessPool.sockets("C:/Program Files (x86)/OpenOffice 4/program/", "127.0.0.1", 8100, 4);
+ *     pool.start();
+ *     pool.convert(inputFile, outputFile);
+ *     pool.stop();
+ */
+public class OfficeProcessPool {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(OfficeProcessPool.class);
+
+    private final List<OfficeProcess> processes;
+
+    private final BlockingQueue<OfficeProcess> idle;
+
+    /**
+     * 已经关闭、下次 start 时需要启动的进程；借出的进程和后台重启的进程不在这里，归还时放回 idle 或者关闭
+     */
+    private final Set<OfficeProcess> stopped;
+
+    private int maxConversionsPerProcess = 200;
+
+    private long taskTimeoutMillis = 120000L;
+
+    private long startupTimeoutMillis = 30000L;
+
+    private long borrowTimeoutMillis = 60000L;
+
+    private long healthCheckIntervalMillis = 30000L;
+
+    /**
+     * 转换超时的看门狗、后台重启和定时检查共用的线程，线程数量为进程数量加2，重启时不会耽误超时检查
+     */
+    private ScheduledExecutorService watchdog;
+
+    private volatile boolean running = false;
+
+    private final AtomicLong conversionCount = new AtomicLong();
+
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private final AtomicLong restartCount = new AtomicLong();
+
+    private OfficeProcessPool(List<OfficeProcess> processes) {
+        this.processes = Collections.unmodifiableList(processes);
+        this.idle = new LinkedBlockingQueue<>();
+        this.stopped = new LinkedHashSet<>(processes);
+    }
+
+    /**
+     * @param officeHome soffice 所在的目录
+     * @param host       监听的地址
+     * @param firstPort  第一个进程的端口，之后的进程依次加一
+     * @param size       进程数量
+     */
+    public static OfficeProcessPool sockets(String officeHome, String host, int firstPort, int size) {
+        List<OfficeProcess> processes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            processes.add(new OfficeProcess(officeHome, host, firstPort + i, null));
+        }
+        return new OfficeProcessPool(processes);
+    }
+
+    /**
+     * @param officeHome soffice 所在的目录
+     * @param pipePrefix 管道名称的前缀，管道名称为前缀加序号；管道需要 jurt 的本地库，只在同一台机器上使用
+     * @param size       进程数量
+     */
+    public static OfficeProcessPool pipes(String officeHome, String pipePrefix, int size) {
+        List<OfficeProcess> processes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            processes.add(new OfficeProcess(officeHome, null, -1, pipePrefix + i));
+        }
+        return new OfficeProcessPool(processes);
+    }
+
+    /**
+     * @param maxConversionsPerProcess 一个进程转换多少次之后重启，0 为不重启
+     */
+    public void setMaxConversionsPerProcess(int maxConversionsPerProcess) {
+        this.maxConversionsPerProcess = maxConversionsPerProcess;
+    }
+
+    /**
+     * @param taskTimeoutMillis 一次转换的最长时间，超时之后结束进程
+     */
+    public void setTaskTimeoutMillis(long taskTimeoutMillis) {
+        this.taskTimeoutMillis = taskTimeoutMillis;
+    }
+
+    public void setStartupTimeoutMillis(long startupTimeoutMillis) {
+        this.startupTimeoutMillis = startupTimeoutMillis;
+    }
+
+    /**
+     * @param borrowTimeoutMillis 所有进程都在使用时 convert 等待的最长时间
+     */
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public void setHealthCheckIntervalMillis(long healthCheckIntervalMillis) {
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+    }
+
+    /**
+     * 同时启动所有进程，等待可以连接；启动失败的进程在借出时重试
+     * stop 之后可以再次 start，stop 时还借出的进程不会重复启动，归还时直接放回
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        watchdog = Executors.newScheduledThreadPool(processes.size() + 2, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "office-process-watchdog-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<OfficeProcess> starting = new ArrayList<>(stopped);
+        stopped.clear();
+        for (OfficeProcess process : starting) {
+            try {
+                process.launch();
+            } catch (Exception e) {
+                logger.warn("start office process {} error: {}", process.getName(), e.getMessage());
+            }
+        }
+        for (OfficeProcess process : starting) {
+            try {
+                process.connect(startupTimeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.warn("connect office process {} error: {}", process.getName(), e.getMessage());
+            }
+            idle.offer(process);
+        }
+        running = true;
+        if (healthCheckIntervalMillis > 0) {
+            watchdog.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    checkIdleProcesses();
+                }
+            }, healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 关闭所有进程，正在转换的进程在归还时关闭
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        watchdog.shutdownNow();
+        List<OfficeProcess> idleProcesses = new ArrayList<>();
+        idle.drainTo(idleProcesses);
+        for (OfficeProcess process : idleProcesses) {
+            process.stop();
+            stopped.add(process);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 借出一个可用的进程，使用之后必须调用 giveBack 归还
+     *
+     * @param timeoutMillis 所有进程都在使用时等待的最长时间
+     * @return 可用的进程，已经连接
+     */
+    public OfficeProcess borrow(long timeoutMillis) throws InterruptedException {
+        if (!running) {
+            throw new OpenOfficeException("office process pool is not running");
+        }
+        OfficeProcess process = idle.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (process == null) {
+            throw new OpenOfficeException("no office process available in " + timeoutMillis + " ms");
+        }
+        if (!process.isHealthy()) {
+            try {
+                logger.info("office process {} is not healthy, restart", process.getName());
+                process.restart(startupTimeoutMillis);
+                restartCount.incrementAndGet();
+            } catch (InterruptedException e) {
+                putBack(process);
+                throw e;
+            } catch (Exception e) {
+                putBack(process);
+                throw new OpenOfficeException("restart office process " + process.getName() + " error", e);
+            }
+        }
+        return process;
+    }
+
+    /**
+     * 归还借出的进程；被看门狗结束或者转换次数达到上限的进程在后台重启之后再放回
+     */
+    public void giveBack(final OfficeProcess process) {
+        boolean worn = maxConversionsPerProcess > 0 && process.getConversionCount() >= maxConversionsPerProcess;
+        if (!running || (!process.isKilled() && !worn)) {
+            putBack(process);
+            return;
+        }
+        try {
+            watchdog.execute(new Runnable() {
+                @Override
+                public void run() {
+                    restartAndGiveBack(process);
+                }
+            });
+        } catch (Exception e) {
+            //池已经关闭，或者关闭之后又启动了；放回时按当前状态关闭或者等借出时重启
+            putBack(process);
+        }
+    }
+
+    private void restartAndGiveBack(OfficeProcess process) {
+        try {
+            process.restart(startupTimeoutMillis);
+            restartCount.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            //借出时再重试
+            logger.warn("restart office process {} error: {}", process.getName(), e.getMessage());
+        }
+        putBack(process);
+    }
+
+    /**
+     * 进程池在运行时放回空闲队列，已经关闭时关闭进程，下次 start 时再启动
+     * 和 start、stop 互斥，同一个进程不会同时在 idle 中又被 start 启动一次
+     */
+    private synchronized void putBack(OfficeProcess process) {
+        if (running) {
+            idle.offer(process);
+        } else {
+            process.stop();
+            stopped.add(process);
+        }
+    }
+
+    /**
+     * 检查空闲的进程，退出的进程在后台重启
+     */
+    private void checkIdleProcesses() {
+        for (OfficeProcess process : processes) {
+            //只检查空闲的进程，借出的进程不在队列中
+            if (!process.isHealthy() && idle.remove(process)) {
+                logger.info("office process {} is not healthy, restart", process.getName());
+                restartAndGiveBack(process);
+            }
+        }
+    }
+
+    /**
+     * 借出一个进程转换文件，转换的格式由文件的扩展名决定
+     *
+     * @param inputFile  需要转换的文件
+     * @param outputFile 转换后的文件
+     */
+    public void convert(File inputFile, File outputFile) throws InterruptedException {
+        convert(inputFile, outputFile, taskTimeoutMillis, new Conversion());
+    }
+
+    /**
+     * @param timeoutMillis 这次转换的最长时间，超时之后结束进程，0 为不限制
+     * @param conversion    转换的状态，其他线程通过它取消正在进行的转换
+     */
+    void convert(final File inputFile, final File outputFile, long timeoutMillis, Conversion conversion) throws InterruptedException {
+        execute(new ConverterTask() {
+            @Override
+            public void convert(DocumentConverter converter) {
+                converter.convert(inputFile, outputFile);
+            }
+        }, inputFile.getPath(), timeoutMillis, conversion);
+    }
+
+    /**
+     * 借出一个进程按流转换，不需要临时文件：输入由 jodconverter 读入内存之后交给 soffice，输出直接写入 outputStream
+     * 流不会被关闭
+     *
+     * @param inputFormat  输入的格式
+     * @param outputFormat 输出的格式
+     */
+    public void convert(final InputStream inputStream, final DocumentFormat inputFormat,
+                        final OutputStream outputStream, final DocumentFormat outputFormat) throws InterruptedException {
+        execute(new ConverterTask() {
+            @Override
+            public void convert(DocumentConverter converter) {
+                converter.convert(inputStream, inputFormat, outputStream, outputFormat);
+            }
+        }, "stream(" + inputFormat.getFileExtension() + ")", taskTimeoutMillis, new Conversion());
+    }
+
+    /**
+     * 使用借出的进程的转换器做一次转换
+     */
+    private interface ConverterTask {
+        void convert(DocumentConverter converter);
+    }
+
+    private void execute(ConverterTask task, String description, final long timeoutMillis, final Conversion conversion) throws InterruptedException {
+        final OfficeProcess process = borrow(borrowTimeoutMillis);
+        ScheduledFuture<?> timeout = null;
+        try {
+            process.own(conversion);
+            conversion.process = process;
+            if (conversion.cancelled) {
+                throw new CancellationException("conversion cancelled: " + description);
+            }
+            if (timeoutMillis > 0) {
+                timeout = watchdog.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        //转换已经结束时进程可能已经借给了其他调用方，只结束这次转换还在使用的进程
+                        if (process.killIfOwnedBy(conversion)) {
+                            logger.warn("office process {} conversion timeout, killed", process.getName());
+                            timeoutCount.incrementAndGet();
+                        }
+                    }
+                }, timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            task.convert(process.getConverter());
+            process.conversionDone();
+            conversionCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            if (conversion.cancelled) {
+                throw new CancellationException("conversion cancelled: " + description);
+            }
+            if (process.isKilled()) {
+                conversion.timedOut = true;
+                throw new OpenOfficeException("conversion timeout after " + timeoutMillis + " ms: " + description, e);
+            }
+            throw e;
+        } finally {
+            conversion.process = null;
+            process.release(conversion);
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            giveBack(process);
+        }
+    }
+
+    /**
+     * 一次转换的状态，取消时结束正在转换的进程，进程在归还之后重启
+     */
+    static final class Conversion {
+        private volatile OfficeProcess process;
+        private volatile boolean timedOut;
+        private volatile boolean cancelled;
+
+        void cancel() {
+            cancelled = true;
+            OfficeProcess p = process;
+            if (p != null) {
+                p.killIfOwnedBy(this);
+            }
+        }
+
+        boolean isTimedOut() {
+            return timedOut;
+        }
+    }
+
+    /**
+     * @return 空闲的进程数量
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getSize() {
+        return processes.size();
+    }
+
+    public long getConversionCount() {
+        return conversionCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getRestartCount() {
+        return restartCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "OfficeProcessPool{size=" + getSize()
+                + ", idle=" + getIdleCount()
+                + ", conversions=" + getConversionCount()
+                + ", timeouts=" + getTimeoutCount()
+                + ", restarts=" + getRestartCount()
+                + ", processes=" + processes + "}";
+    }
+}
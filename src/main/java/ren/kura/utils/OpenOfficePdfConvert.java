@@ -1,16 +1,22 @@
 package ren.kura.utils;
 
-import com.artofsolving.jodconverter.DocumentConverter;
-import com.artofsolving.jodconverter.openoffice.connection.OpenOfficeConnection;
-import com.artofsolving.jodconverter.openoffice.connection.SocketOpenOfficeConnection;
-import com.artofsolving.jodconverter.openoffice.converter.StreamOpenOfficeDocumentConverter;
+import com.artofsolving.jodconverter.openoffice.connection.OpenOfficeException;
+
+import com.artofsolving.jodconverter.DefaultDocumentFormatRegistry;
+import com.artofsolving.jodconverter.DocumentFormat;
+import com.artofsolving.jodconverter.DocumentFormatRegistry;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.ConnectException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.Future;
 
 /**
  * @author: LiuHao
@@ -47,8 +53,8 @@ import java.util.Date;
  *     </dependency>
  *
  * 1.对需要文件和目标文件进行判断
- * 2.对目标文件路径判断，不存在就创建文件夹；并在windows环境下命令调用openOffice的进程
- * 3.转换结束后，关闭连接和进程
+ * 2.对目标文件路径判断，不存在就创建文件夹；从 OfficeProcessPool 借出一个已经启动的openOffice进程
+ * 3.转换结束后，归还进程，进程一直运行，项目停止时调用 shutdownOfficePool 关闭
  *
  */
 public class OpenOfficePdfConvert {
@@ -56,10 +62,6 @@ public class OpenOfficePdfConvert {
      * OpenOfficeHome路径
      */
     private static String OPEN_OFFICE_HOME = "C:/Program Files (x86)/OpenOffice 4/program/";
-    /**
-     * 启动服务的命令
-     */
-    private static String COMMAND = "soffice -headless -accept=\"socket,host=127.0.0.1,port=8100;urp;\"";
 
     private static int NOT_EXIST = -2;
 
@@ -71,12 +73,31 @@ public class OpenOfficePdfConvert {
 
     private static  String PDF_FORMAT = "pdf";
 
+    /**
+     * 按扩展名查找 jodconverter 支持的格式，流转换时使用
+     */
+    private static DocumentFormatRegistry FORMAT_REGISTRY = new DefaultDocumentFormatRegistry();
+
+    /**
+     * 转换使用的进程池，没有设置时第一次转换按 OPEN_OFFICE_HOME 在 8100 端口启动一个进程
+     */
+    private static OfficeProcessPool officePool;
+
+    /**
+     * 异步转换使用的服务，第一次异步转换时创建，最多排队 ASYNC_QUEUE_CAPACITY 个文件
+     */
+    private static PdfConversionService conversionService;
+
+    /**
+     * 转换结果的缓存，没有设置时不使用缓存，每次都重新转换
+     */
+    private static volatile PdfConversionCache conversionCache;
+
+    private static int ASYNC_QUEUE_CAPACITY = 100;
+
+    private static long ASYNC_TIMEOUT_MILLIS = 120000L;
+
     private static boolean officeToPDF(String sourceFile, String destFile) {
-/**
- * 启动服务
- */
-        Process process  = startOpenOffice();
-        OpenOfficeConnection connection =null;
         try {
             File inputFile = new File(sourceFile);
             if (!inputFile.exists()) {
@@ -93,51 +114,74 @@ public class OpenOfficePdfConvert {
                 outputFile.delete();
             }
             DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm ss");
-            connection = new SocketOpenOfficeConnection("127.0.0.1", 8100);
-            connection.connect();
-            //openOffice连接时间
-            System.out.println("连接时间:" + df.format(new Date()));
-            DocumentConverter converter = new StreamOpenOfficeDocumentConverter(
-                    connection);
-            converter.convert(inputFile, outputFile);
+            /**
+             * 使用进程池中已经启动的进程，不再每次启动和关闭 openOffice
+             */
+            getOfficePool().convert(inputFile, outputFile);
             //转PDF的转换时间
             System.out.println("转换时间:" + df.format(new Date()));
             return true;
-        } catch (ConnectException e) {
+        } catch (OpenOfficeException e) {
             e.printStackTrace();
-            System.err.println("openOffice连接失败！请检查IP,端口");
+            System.err.println("openOffice转换失败！请检查openOffice的路径和端口");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             e.printStackTrace();
-        }finally {
-            if(connection!=null){
-             connection.disconnect();
-            }
-            /**
-             * 避免进程一直存在，执行结束后杀掉进程
-             */
-            if(process!=null){
-                process.destroy();
-            }
         }
         return false;
     }
 
+    /**
+     * 设置转换使用的进程池，之前的进程池会被关闭
+     *
+     * @param pool 已经启动或者没有启动的进程池
+     */
+    public static synchronized void setOfficePool(OfficeProcessPool pool) {
+        if (conversionService != null) {
+            conversionService.shutdown(0);
+            conversionService = null;
+        }
+        OfficeProcessPool old = officePool;
+        officePool = pool;
+        if (old != null && old != pool) {
+            old.stop();
+        }
+    }
 
-
-
+    /**
+     * 关闭进程池中的 openOffice 进程，项目停止时调用
+     */
+    public static synchronized void shutdownOfficePool() {
+        if (conversionService != null) {
+            conversionService.shutdown(0);
+            conversionService = null;
+        }
+        if (officePool != null) {
+            officePool.stop();
+        }
+    }
 
     /**
-     * 启动openOffice服务
+     * 设置转换结果的缓存，相同内容的文件直接使用之前转换的pdf
+     *
+     * @param cache 为 null 时不使用缓存
      */
-    private static Process startOpenOffice(){
-        // 启动OpenOffice的服务的完整命令
-        String fullCommand = OPEN_OFFICE_HOME + COMMAND;
-        try {
-            return Runtime.getRuntime().exec(fullCommand);
-        } catch (IOException e) {
-            e.printStackTrace();
+    public static synchronized void setConversionCache(PdfConversionCache cache) {
+        conversionCache = cache;
+        if (conversionService != null) {
+            conversionService.setCache(cache);
+        }
+    }
+
+    private static synchronized OfficeProcessPool getOfficePool() {
+        if (officePool == null) {
+            officePool = OfficeProcessPool.sockets(OPEN_OFFICE_HOME, "127.0.0.1", 8100, 1);
+        }
+        if (!officePool.isRunning()) {
+            officePool.start();
         }
-        return null;
+        return officePool;
     }
 
     /**
@@ -159,7 +203,23 @@ public class OpenOfficePdfConvert {
         if (PDF_FORMAT.equals(kind)) {
             return  ALREADY_PDF;
         }
+        // 相同内容的文件已经转换过
+        PdfConversionCache cache = conversionCache;
+        String key = null;
+        if (cache != null) {
+            try {
+                key = cache.key(file, PDF_FORMAT);
+                if (cache.fetch(key, new File(destFile))) {
+                    return SUCCESS;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
         if(officeToPDF(sourceFile, destFile)){
+            if (key != null) {
+                cache.store(key, new File(destFile));
+            }
             return SUCCESS;
         }else{
             return FAIL;
@@ -168,6 +228,75 @@ public class OpenOfficePdfConvert {
 
 
 
+    /**
+     * 异步将传入的文件转换为pdf格式，立刻返回，不占用调用的线程
+     * @param sourceFile 传入需要转换的文件的绝对路径
+     * @param destFile   转换后的文件的路径和文件名称
+     * @param callback   转换结束时的回调，可以为 null；ConversionResult.getCode 和 convertFileToPdf 的返回值一致
+     * @return 转换的结果，可以取消
+     * @throws java.util.concurrent.RejectedExecutionException 排队的文件已经达到上限
+     */
+    public static Future<ConversionResult> convertFileToPdfAsync(String sourceFile, String destFile, ConversionCallback callback) {
+        return getConversionService().submit(new File(sourceFile), new File(destFile), callback);
+    }
+
+    private static synchronized PdfConversionService getConversionService() {
+        if (conversionService == null) {
+            if (officePool == null) {
+                officePool = OfficeProcessPool.sockets(OPEN_OFFICE_HOME, "127.0.0.1", 8100, 1);
+            }
+            conversionService = new PdfConversionService(officePool, ASYNC_QUEUE_CAPACITY, ASYNC_TIMEOUT_MILLIS);
+            conversionService.setCache(conversionCache);
+        }
+        return conversionService;
+    }
+
+    /**
+     * 将输入流转换为pdf写入输出流，上传的文件不需要先写到磁盘上，转换后也不需要再读一次
+     * jodconverter 把输入读入内存之后交给 openOffice，输出直接写入 out，转换过程中没有临时文件
+     * @param in           需要转换的内容，不会关闭
+     * @param sourceFormat 内容的格式，使用文件的扩展名，例如 doc、xlsx
+     * @param out          pdf写入的流，不会关闭
+     * @return -1 转换失败或者不支持的格式
+     *          3   已经是pdf，原样写入输出流
+     *          1   转换成功
+     */
+    public static int convertStreamToPdf(InputStream in, String sourceFormat, OutputStream out) {
+        String kind = getFileSubFix(sourceFormat).toLowerCase();
+        try {
+            if (PDF_FORMAT.equals(kind)) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+                return ALREADY_PDF;
+            }
+            DocumentFormat inputFormat = FORMAT_REGISTRY.getFormatByFileExtension(kind);
+            if (inputFormat == null || !inputFormat.isImportable()) {
+                System.err.println("不支持的文件格式：" + sourceFormat);
+                return FAIL;
+            }
+            getOfficePool().convert(in, inputFormat, out, FORMAT_REGISTRY.getFormatByFileExtension(PDF_FORMAT));
+            return SUCCESS;
+        } catch (OpenOfficeException e) {
+            e.printStackTrace();
+            System.err.println("openOffice转换失败！请检查openOffice的路径和端口");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return FAIL;
+    }
+
+    /**
+     * 和 convertStreamToPdf 相同，使用 NIO 的通道，例如 FileChannel、SocketChannel；通道不会关闭
+     */
+    public static int convertChannelToPdf(ReadableByteChannel in, String sourceFormat, WritableByteChannel out) {
+        return convertStreamToPdf(Channels.newInputStream(in), sourceFormat, Channels.newOutputStream(out));
+    }
+
     /***
      * 判断文件类型
      *
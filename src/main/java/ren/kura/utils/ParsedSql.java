@@ -0,0 +1,200 @@
+package ren.kura.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ClassName: ParsedSql
+ * @Descripton: sql的解析结果，只保存原语句和每个子句的起止位置，读取子句时才生成字符串
+ * 子句按处理链的下标保存，默认的子句可以直接用 SqlChainNameEnum 读取；创建之后不能修改，可以被多个线程共享
+ * 括号中的子查询也解析为 ParsedSql，按出现的顺序保存在 subQueries 中，子查询的位置同样是在原语句中的位置
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public final class ParsedSql {
+
+    private final SqlHandlerChain chain;
+
+    private final CharSequence sql;
+
+    private final int from;
+
+    private final int to;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private final List<ParsedSql> subQueries;
+
+    ParsedSql(SqlHandlerChain chain, CharSequence sql, int from, int to, int[] starts, int[] ends, List<ParsedSql> subQueries) {
+        this.chain = chain;
+        this.sql = sql;
+        this.from = from;
+        this.to = to;
+        this.starts = starts;
+        this.ends = ends;
+        this.subQueries = subQueries;
+    }
+
+    /**
+     * @return 解析的原语句，子查询也是整个原语句
+     */
+    public CharSequence getSql() {
+        return sql;
+    }
+
+    /**
+     * @return 这一层语句在原语句中的起始位置，子查询为 SELECT 的位置
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * @return 这一层语句在原语句中的结束位置，子查询为右括号的位置
+     */
+    public int getTo() {
+        return to;
+    }
+
+    /**
+     * @return 这一层语句中直接包含的子查询，按出现的顺序排列；更深的子查询在子查询的 getSubQueries 中
+     */
+    public List<ParsedSql> getSubQueries() {
+        return subQueries;
+    }
+
+    /**
+     * @return 按出现的顺序排列的所有子查询，包括子查询中的子查询
+     */
+    public List<ParsedSql> getAllSubQueries() {
+        List<ParsedSql> all = new ArrayList<>();
+        collectSubQueries(all);
+        return all;
+    }
+
+    private void collectSubQueries(List<ParsedSql> all) {
+        for (ParsedSql subQuery : subQueries) {
+            all.add(subQuery);
+            subQuery.collectSubQueries(all);
+        }
+    }
+
+    /**
+     * @return 解析时使用的处理链
+     */
+    public SqlHandlerChain getChain() {
+        return chain;
+    }
+
+    public boolean hasClause(SqlParserUtil.SqlChainNameEnum chainName) {
+        return hasClause(chain.indexOf(chainName));
+    }
+
+    public boolean hasClause(String chainName) {
+        return hasClause(chain.indexOf(chainName));
+    }
+
+    /**
+     * @param index 处理器在处理链中的下标
+     */
+    public boolean hasClause(int index) {
+        return index >= 0 && starts[index] >= 0;
+    }
+
+    /**
+     * @return 子句的内容（包含关键字），没有这个子句时返回空字符串
+     */
+    public String getClause(SqlParserUtil.SqlChainNameEnum chainName) {
+        return getClause(chain.indexOf(chainName));
+    }
+
+    /**
+     * @return 子句的内容（包含关键字），没有这个子句时返回空字符串
+     */
+    public String getClause(String chainName) {
+        return getClause(chain.indexOf(chainName));
+    }
+
+    /**
+     * @param index 处理器在处理链中的下标
+     * @return 子句的内容（包含关键字），没有这个子句时返回空字符串
+     */
+    public String getClause(int index) {
+        return hasClause(index) ? sql.subSequence(starts[index], ends[index]).toString() : "";
+    }
+
+    /**
+     * @return 子句在原语句中的起始位置，没有这个子句时返回-1
+     */
+    public int getClauseStart(SqlParserUtil.SqlChainNameEnum chainName) {
+        int index = chain.indexOf(chainName);
+        return index < 0 ? -1 : starts[index];
+    }
+
+    /**
+     * @return 子句在原语句中的结束位置，没有这个子句时返回-1
+     */
+    public int getClauseEnd(SqlParserUtil.SqlChainNameEnum chainName) {
+        int index = chain.indexOf(chainName);
+        return index < 0 ? -1 : ends[index];
+    }
+
+    /**
+     * @param index 处理器在处理链中的下标
+     * @return 子句在原语句中的起始位置，没有这个子句时返回-1
+     */
+    public int getClauseStart(int index) {
+        return index < 0 ? -1 : starts[index];
+    }
+
+    /**
+     * @param index 处理器在处理链中的下标
+     * @return 子句在原语句中的结束位置，没有这个子句时返回-1
+     */
+    public int getClauseEnd(int index) {
+        return index < 0 ? -1 : ends[index];
+    }
+
+    /**
+     * 按处理链的顺序把子句拼接到 StringBuilder，直接从原语句追加，不生成中间的字符串
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] < 0) {
+                continue;
+            }
+            if (sb.length() > 0 && !Character.isWhitespace(sb.charAt(sb.length() - 1))) {
+                sb.append(' ');
+            }
+            sb.append(sql, starts[i], ends[i]);
+        }
+        return sb;
+    }
+
+    /**
+     * @return 按处理链的顺序拼接的语句
+     */
+    public String toSql() {
+        return appendTo(new StringBuilder(to - from)).toString();
+    }
+
+    /**
+     * @return 处理器名称和对应的子句，没有的子句为空字符串
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new HashMap<>(starts.length * 2);
+        for (int i = 0; i < starts.length; i++) {
+            map.put(chain.getChainNames().get(i), getClause(i));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -0,0 +1,35 @@
+package ren.kura.utils;
+
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.spi.ClassLoadHelper;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 15:00
+ * @Description: 集群模式下按任务组分区获取触发器的 StdJDBCDelegate，分区的规则见 TriggerPartitioner
+ * org.quartz.jobStore.driverDelegateClass: ren.kura.utils.PartitionedJDBCDelegate
+ */
+public class PartitionedJDBCDelegate extends StdJDBCDelegate implements TriggerPartitioner.StateSource {
+
+    private final TriggerPartitioner partitioner = new TriggerPartitioner();
+
+    @Override
+    public void initialize(Logger logger, String tablePrefix, String schedName, String instanceId, ClassLoadHelper classLoadHelper,
+                           boolean useProperties, String initString) throws NoSuchDelegateException {
+        super.initialize(logger, tablePrefix, schedName, instanceId, classLoadHelper, useProperties, partitioner.configure(initString));
+    }
+
+    @Override
+    public List<TriggerKey> selectTriggerToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount) throws SQLException {
+        return partitioner.selectTriggerToAcquire(conn, rtp(TriggerPartitioner.SELECT_NEXT_TRIGGER_TO_ACQUIRE), this, instanceId,
+                noLaterThan, noEarlierThan, maxCount, STATE_WAITING);
+    }
+}
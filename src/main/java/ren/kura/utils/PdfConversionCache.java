@@ -0,0 +1,404 @@
+package ren.kura.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 18:30
+ * @Description: 按源文件内容缓存转换后的pdf，相同内容的文件不再重复转换
+ * 源文件按流计算 SHA-256，和转换的格式一起作为 key，转换后的文件保存在 cacheDir 中，命中时硬链接到目标路径，不支持硬链接时复制
+ * 缓存文件的总大小超过 maxBytes 时删除最久没有使用的文件；使用顺序保存在 cacheDir 的索引文件中，重启之后仍然按使用顺序淘汰
+ * 缓存文件和目标文件是硬链接，不能用修改时间记录使用顺序，否则会改变用户文件的修改时间
+ * 目标文件和缓存文件是同一个文件（硬链接），不要直接修改转换后的文件，需要修改时先复制
+ *
+ *     PdfConversionCache cache = new PdfConversionCache(new File("D://pdf-cache"), 2L * 1024 * 1024 * 1024);
+ *     OpenOfficePdfConvert.setConversionCache(cache);
+ */
+public class PdfConversionCache {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(PdfConversionCache.class);
+
+    private static final String CACHE_SUFFIX = ".pdf";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * 索引文件，每行一个 key，按使用顺序排列
+     */
+    private static final String INDEX_FILE = "lru.index";
+
+    /**
+     * 只有命中时，最多每隔这么久保存一次索引；保存缓存文件和淘汰时立即保存
+     */
+    private static final long INDEX_SAVE_MILLIS = 60 * 1000L;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File cacheDir;
+
+    private final long maxBytes;
+
+    /**
+     * key 和缓存文件的大小，按使用顺序排列，第一个是最久没有使用的
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    /**
+     * 使用顺序改变之后还没有保存到索引文件
+     */
+    private boolean indexDirty;
+
+    private long indexSavedAt;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong storeCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * 计算 hash 使用的总时间（纳秒）
+     */
+    private final AtomicLong hashNanos = new AtomicLong();
+
+    /**
+     * @param cacheDir 缓存文件保存的目录，最好和转换后的文件在同一个磁盘上，否则不能硬链接
+     * @param maxBytes 缓存文件总大小的上限
+     */
+    public PdfConversionCache(File cacheDir, long maxBytes) {
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        load();
+    }
+
+    /**
+     * 读取目录中已有的缓存文件，按索引文件恢复使用顺序；删除上次没有写完的临时文件
+     */
+    private synchronized void load() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (!file.isFile()) {
+                continue;
+            }
+            if (name.endsWith(TEMP_SUFFIX)) {
+                if (!file.delete()) {
+                    logger.warn("delete temp file {} error", file);
+                }
+            } else if (name.endsWith(CACHE_SUFFIX)) {
+                sizes.put(name.substring(0, name.length() - CACHE_SUFFIX.length()), file.length());
+            }
+        }
+        for (String key : readIndex()) {
+            Long size = sizes.remove(key);
+            if (size != null) {
+                entries.put(key, size);
+                totalBytes += size;
+            }
+        }
+        //索引中没有的文件是最后一次保存索引之后加入的，按修改时间排在后面
+        for (Map.Entry<String, Long> entry : sizes.entrySet()) {
+            entries.put(entry.getKey(), entry.getValue());
+            totalBytes += entry.getValue();
+        }
+        indexDirty = !sizes.isEmpty();
+        evict();
+        saveIndex();
+    }
+
+    private List<String> readIndex() {
+        List<String> keys = new ArrayList<>();
+        File index = new File(cacheDir, INDEX_FILE);
+        if (!index.isFile()) {
+            return keys;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(index), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    keys.add(line);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("read cache index {} error: {}", index, e.getMessage());
+        }
+        return keys;
+    }
+
+    /**
+     * 使用顺序改变之后写入索引文件，先写入临时文件再改名
+     */
+    private void saveIndex() {
+        if (!indexDirty) {
+            return;
+        }
+        File index = new File(cacheDir, INDEX_FILE);
+        File temp = new File(cacheDir, INDEX_FILE + TEMP_SUFFIX);
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"))) {
+                for (String key : entries.keySet()) {
+                    writer.write(key);
+                    writer.write('\n');
+                }
+            }
+            Files.move(temp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexDirty = false;
+            indexSavedAt = System.currentTimeMillis();
+        } catch (IOException e) {
+            logger.warn("save cache index {} error: {}", index, e.getMessage());
+            temp.delete();
+        }
+    }
+
+    /**
+     * 计算源文件的 key，读取整个文件，不会一次读入内存
+     *
+     * @param source  源文件
+     * @param options 影响转换结果的选项，例如目标格式
+     * @return 内容和选项的 SHA-256
+     */
+    public String key(File source, String options) throws IOException {
+        long start = System.nanoTime();
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(source)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        //选项放在内容之后，长度固定的内容 hash 不会和选项拼接出相同的输入
+        digest.update((byte) 0);
+        digest.update(options.getBytes("UTF-8"));
+        hashNanos.addAndGet(System.nanoTime() - start);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * 缓存中有相同内容的转换结果时放到目标路径
+     *
+     * @return 是否命中
+     */
+    public boolean fetch(String key, File target) {
+        File cached = cacheFile(key);
+        synchronized (this) {
+            if (!entries.containsKey(key) || !cached.isFile()) {
+                forget(key);
+                missCount.incrementAndGet();
+                return false;
+            }
+            //更新使用顺序，不修改缓存文件的修改时间，目标文件和它是同一个文件
+            entries.get(key);
+            indexDirty = true;
+            if (System.currentTimeMillis() - indexSavedAt >= INDEX_SAVE_MILLIS) {
+                saveIndex();
+            }
+        }
+        try {
+            place(cached, target);
+            hitCount.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            //缓存文件可能刚被淘汰，按没有命中处理
+            logger.debug("use cached pdf {} error: {}", key, e.getMessage());
+            missCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * 保存转换成功的文件
+     *
+     * @param key    转换前计算的 key
+     * @param target 转换后的文件
+     */
+    public void store(String key, File target) {
+        long size = target.length();
+        if (size <= 0 || size > maxBytes) {
+            return;
+        }
+        File cached = cacheFile(key);
+        //先写入临时文件再改名，其他线程不会读到一半的文件
+        File temp = new File(cacheDir, key + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        try {
+            place(target, temp);
+            Files.move(temp.toPath(), cached.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("store pdf {} in cache error: {}", target, e.getMessage());
+            temp.delete();
+            return;
+        }
+        synchronized (this) {
+            Long old = entries.put(key, size);
+            totalBytes += size - (old == null ? 0 : old);
+            storeCount.incrementAndGet();
+            indexDirty = true;
+            evict();
+            saveIndex();
+        }
+    }
+
+    /**
+     * 删除最久没有使用的文件，直到总大小不超过上限
+     */
+    private void evict() {
+        List<String> removed = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            totalBytes -= entry.getValue();
+            removed.add(entry.getKey());
+            iterator.remove();
+        }
+        for (String key : removed) {
+            //已经链接到目标路径的文件不受影响
+            cacheFile(key).delete();
+            evictionCount.incrementAndGet();
+        }
+        if (!removed.isEmpty()) {
+            indexDirty = true;
+        }
+    }
+
+    private void forget(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+            indexDirty = true;
+        }
+    }
+
+    /**
+     * 硬链接到目标路径，不在同一个磁盘或者文件系统不支持时复制
+     */
+    private static void place(File from, File to) throws IOException {
+        File parent = to.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        Files.deleteIfExists(to.toPath());
+        try {
+            Files.createLink(to.toPath(), from.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private File cacheFile(String key) {
+        return new File(cacheDir, key + CACHE_SUFFIX);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return 命中的比例，没有请求时为 0
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getStoreCount() {
+        return storeCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return 计算 hash 的总时间（毫秒）
+     */
+    public long getHashMillis() {
+        return hashNanos.get() / 1000000L;
+    }
+
+    @Override
+    public String toString() {
+        return "PdfConversionCache{" + cacheDir
+                + ", entries=" + getEntryCount()
+                + ", bytes=" + getTotalBytes() + "/" + maxBytes
+                + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount()
+                + ", hitRate=" + String.format("%.2f", getHitRate())
+                + ", stores=" + getStoreCount()
+                + ", evictions=" + getEvictionCount()
+                + ", hashMillis=" + getHashMillis() + "}";
+    }
+}
@@ -0,0 +1,376 @@
+package ren.kura.utils;
+
+import com.artofsolving.jodconverter.openoffice.connection.OpenOfficeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 18:00
+ * @Description: 异步转换pdf的服务，提交之后立刻返回 Future，转换结束时调用 ConversionCallback
+ * 同时转换的数量等于 OfficeProcessPool 的进程数量，等待的任务最多 queueCapacity 个，队列满了之后 submit 抛出 RejectedExecutionException 或者等待指定的时间
+ * 每个任务可以指定超时时间，超时之后结束进程并重启；Future.cancel 取消排队的任务，或者结束正在转换的进程
+ */
+public class PdfConversionService {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(PdfConversionService.class);
+
+    private static final String PDF_FORMAT = "pdf";
+
+    private final OfficeProcessPool pool;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 正在转换和排队的任务数量上限
+     */
+    private final Semaphore slots;
+
+    private final long timeoutMillis;
+
+    /**
+     * 转换结果的缓存，为 null 时不使用缓存
+     */
+    private volatile PdfConversionCache cache;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final AtomicLong succeededCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    /**
+     * @param pool          使用的进程池，没有启动时在第一次转换时启动
+     * @param queueCapacity 等待的任务数量上限
+     * @param timeoutMillis 默认的超时时间（毫秒），0 为不限制
+     */
+    public PdfConversionService(OfficeProcessPool pool, int queueCapacity, long timeoutMillis) {
+        this.pool = pool;
+        this.timeoutMillis = timeoutMillis;
+        int workers = pool.getSize();
+        this.slots = new Semaphore(workers + Math.max(0, queueCapacity));
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "pdf-conversion-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param cache 转换结果的缓存，相同内容的文件不再转换；为 null 时不使用缓存
+     */
+    public void setCache(PdfConversionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 提交一个转换，队列满了时直接拒绝
+     *
+     * @param source   需要转换的文件
+     * @param target   转换后的文件
+     * @param callback 转换结束时的回调，可以为 null
+     * @return 转换的结果；取消之后 get 抛出 CancellationException
+     * @throws RejectedExecutionException 队列已满或者服务已经关闭
+     */
+    public Future<ConversionResult> submit(File source, File target, ConversionCallback callback) {
+        if (!slots.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("conversion queue is full");
+        }
+        return execute(source, target, timeoutMillis, callback);
+    }
+
+    /**
+     * 提交一个转换，队列满了时最多等待 waitMillis
+     *
+     * @param timeoutMillis 这次转换的超时时间（毫秒），0 为不限制
+     * @param waitMillis    队列满了时等待的最长时间（毫秒）
+     * @throws RejectedExecutionException 等待之后队列仍然是满的或者服务已经关闭
+     */
+    public Future<ConversionResult> submit(File source, File target, long timeoutMillis, long waitMillis,
+                                           ConversionCallback callback) throws InterruptedException {
+        if (!slots.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("conversion queue is full after waiting " + waitMillis + " ms");
+        }
+        return execute(source, target, timeoutMillis, callback);
+    }
+
+    private Future<ConversionResult> execute(File source, File target, long timeoutMillis, ConversionCallback callback) {
+        ConversionTask task = new ConversionTask(source, target, timeoutMillis, callback);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            rejectedCount.incrementAndGet();
+            throw e;
+        }
+        submittedCount.incrementAndGet();
+        return task;
+    }
+
+    /**
+     * 停止接收新的转换，等待已经提交的转换结束，超时之后取消剩下的转换
+     *
+     * @return 已经提交的转换是否在超时之前全部结束
+     */
+    public boolean shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Runnable> queued = executor.shutdownNow();
+        for (Runnable runnable : queued) {
+            ConversionTask task = (ConversionTask) runnable;
+            task.cancel(true);
+            task.releaseSlot();
+        }
+        return false;
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * @return 排队等待的转换数量
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return 正在转换的数量
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getSucceededCount() {
+        return succeededCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PdfConversionService{queued=" + getQueueSize()
+                + ", active=" + getActiveCount()
+                + ", submitted=" + getSubmittedCount()
+                + ", rejected=" + getRejectedCount()
+                + ", succeeded=" + getSucceededCount()
+                + ", failed=" + getFailedCount()
+                + ", timeouts=" + getTimeoutCount()
+                + ", cancelled=" + getCancelledCount() + "}";
+    }
+
+    private final class ConversionTask extends FutureTask<ConversionResult> {
+        private final File source;
+        private final File target;
+        private final ConversionCallback callback;
+        private final OfficeProcessPool.Conversion conversion;
+        private final long submittedAt;
+
+        /**
+         * 提交时占用的位置还没有释放；运行结束、排队时取消和关闭服务都会释放，只能释放一次
+         */
+        private final AtomicBoolean holdingSlot = new AtomicBoolean(true);
+
+        ConversionTask(File source, File target, long timeoutMillis, ConversionCallback callback) {
+            this(source, target, timeoutMillis, callback, new OfficeProcessPool.Conversion(), System.currentTimeMillis());
+        }
+
+        private ConversionTask(final File source, final File target, final long timeoutMillis, ConversionCallback callback,
+                               final OfficeProcessPool.Conversion conversion, final long submittedAt) {
+            super(new Callable<ConversionResult>() {
+                @Override
+                public ConversionResult call() throws Exception {
+                    return convert(source, target, timeoutMillis, conversion, submittedAt);
+                }
+            });
+            this.source = source;
+            this.target = target;
+            this.callback = callback;
+            this.conversion = conversion;
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                releaseSlot();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                conversion.cancel();
+                //还在排队的任务从队列中移除，不再占用位置；已经开始的任务在 run 结束时释放
+                if (executor.remove(this)) {
+                    releaseSlot();
+                }
+            }
+            return cancelled;
+        }
+
+        void releaseSlot() {
+            if (holdingSlot.compareAndSet(true, false)) {
+                slots.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            ConversionResult result;
+            if (isCancelled()) {
+                result = new ConversionResult(source, target, ConversionResult.Status.CANCELLED,
+                        System.currentTimeMillis() - submittedAt, 0, null);
+            } else {
+                try {
+                    result = get();
+                } catch (ExecutionException e) {
+                    result = new ConversionResult(source, target, ConversionResult.Status.FAILED,
+                            System.currentTimeMillis() - submittedAt, 0, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            count(result.getStatus());
+            if (callback != null) {
+                try {
+                    callback.onComplete(result);
+                } catch (Exception e) {
+                    logger.warn("conversion callback error", e);
+                }
+            }
+        }
+    }
+
+    private void count(ConversionResult.Status status) {
+        switch (status) {
+            case SUCCESS:
+            case CACHED:
+            case ALREADY_PDF:
+                succeededCount.incrementAndGet();
+                break;
+            case TIMEOUT:
+                timeoutCount.incrementAndGet();
+                break;
+            case CANCELLED:
+                cancelledCount.incrementAndGet();
+                break;
+            default:
+                failedCount.incrementAndGet();
+        }
+    }
+
+    private ConversionResult convert(File source, File target, long timeoutMillis,
+                                     OfficeProcessPool.Conversion conversion, long submittedAt) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long queued = start - submittedAt;
+        if (!source.exists()) {
+            return new ConversionResult(source, target, ConversionResult.Status.NOT_EXIST, queued, 0, null);
+        }
+        String name = source.getName();
+        if (PDF_FORMAT.equalsIgnoreCase(name.substring(name.lastIndexOf('.') + 1))) {
+            return new ConversionResult(source, target, ConversionResult.Status.ALREADY_PDF, queued, 0, null);
+        }
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        if (target.exists()) {
+            target.delete();
+        }
+        PdfConversionCache cache = this.cache;
+        String key = null;
+        if (cache != null) {
+            try {
+                key = cache.key(source, PDF_FORMAT);
+                if (cache.fetch(key, target)) {
+                    return new ConversionResult(source, target, ConversionResult.Status.CACHED, queued,
+                            System.currentTimeMillis() - start, null);
+                }
+            } catch (IOException e) {
+                logger.warn("hash {} error: {}", source, e.getMessage());
+            }
+        }
+        try {
+            //第一次转换时在转换线程中启动进程池，提交的线程不用等待
+            pool.start();
+            pool.convert(source, target, timeoutMillis, conversion);
+            if (key != null) {
+                cache.store(key, target);
+            }
+            return new ConversionResult(source, target, ConversionResult.Status.SUCCESS, queued,
+                    System.currentTimeMillis() - start, null);
+        } catch (CancellationException e) {
+            return new ConversionResult(source, target, ConversionResult.Status.CANCELLED, queued,
+                    System.currentTimeMillis() - start, e);
+        } catch (OpenOfficeException e) {
+            ConversionResult.Status status = conversion.isTimedOut() ? ConversionResult.Status.TIMEOUT : ConversionResult.Status.FAILED;
+            return new ConversionResult(source, target, status, queued, System.currentTimeMillis() - start, e);
+        } catch (RuntimeException e) {
+            return new ConversionResult(source, target, ConversionResult.Status.FAILED, queued,
+                    System.currentTimeMillis() - start, e);
+        }
+    }
+}
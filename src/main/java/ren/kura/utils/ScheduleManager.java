@@ -0,0 +1,250 @@
+package ren.kura.utils;
+
+import org.quartz.Scheduler;
+import org.quartz.SchedulerFactory;
+import org.quartz.impl.SchedulerRepository;
+import org.quartz.impl.StdSchedulerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 10:30
+ * @Description: 管理整个应用共用的调度器，只在第一次使用时通过 StdSchedulerFactory 创建，之后直接返回缓存的调度器
+ * ScheduledUtils 和 ScheduleStartListener 都从这里获取调度器；项目停止时调用 shutdownGracefully 释放线程池，避免重新部署时线程泄漏
+ * 关闭之后 getScheduler 返回已经关闭的调度器，添加任务会失败，只有显式地调用 start 才重新创建调度器
+ * 创建调度器时注册 ScheduleMetrics 统计触发延迟、执行耗时和线程池的使用率，注册 JobAdmissionController 按任务组限流；使用 ElasticThreadPool 时注册它的 FiredJobFactory
+ * 通过 Properties 创建的调度器不保留在 SchedulerRepository 中，同一个 JVM 中可以创建多个 instanceName 相同、instanceId 不同的调度器，比如在本地用多个调度器共用一个数据库测试集群模式
+ */
+public class ScheduleManager {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleManager.class);
+
+    private static final ScheduleManager INSTANCE = new ScheduleManager(new StdSchedulerFactory());
+
+    private final SchedulerFactory schedulerFactory;
+
+    private volatile Scheduler scheduler;
+
+    /**
+     * 正在停止时不再自动启动调度器
+     */
+    private volatile boolean stopping = false;
+
+    /**
+     * 创建之后是否从 SchedulerRepository 中移除
+     */
+    private final boolean detached;
+
+    /**
+     * 调度器的运行统计，每次创建调度器时注册
+     */
+    private final ScheduleMetrics metrics = new ScheduleMetrics();
+
+    /**
+     * 按任务组限流，每次创建调度器时注册
+     */
+    private final JobAdmissionController admission = new JobAdmissionController();
+
+    /**
+     * 合并修改触发时间的请求，第一次使用时创建，停止调度器之前保存等待的修改
+     */
+    private ScheduleUpdateCoalescer updateCoalescer;
+
+    ScheduleManager(SchedulerFactory schedulerFactory) {
+        this(schedulerFactory, false);
+    }
+
+    private ScheduleManager(SchedulerFactory schedulerFactory, boolean detached) {
+        this.schedulerFactory = schedulerFactory;
+        this.detached = detached;
+    }
+
+    /**
+     * @param properties 调度器的配置，和 quartz.properties 的格式一致；同一个集群的调度器 instanceName 相同，instanceId 不同
+     */
+    public ScheduleManager(Properties properties) throws org.quartz.SchedulerException {
+        this(new StdSchedulerFactory(properties), true);
+    }
+
+    public static ScheduleManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return 缓存的调度器，第一次调用时创建；关闭之后返回已经关闭的调度器，调用它的方法会抛出 SchedulerException，直到显式地调用 start
+     */
+    public Scheduler getScheduler() throws org.quartz.SchedulerException {
+        Scheduler sched = scheduler;
+        if (sched != null) {
+            return sched;
+        }
+        synchronized (this) {
+            if (scheduler == null) {
+                scheduler = createScheduler();
+            }
+            return scheduler;
+        }
+    }
+
+    private Scheduler createScheduler() throws org.quartz.SchedulerException {
+        Scheduler sched = schedulerFactory.getScheduler();
+        if (detached) {
+            SchedulerRepository.getInstance().remove(sched.getSchedulerName());
+        }
+        metrics.install(sched);
+        admission.install(sched);
+        if (ElasticThreadPool.class.equals(sched.getMetaData().getThreadPoolClass())) {
+            ElasticThreadPool.install(sched);
+        }
+        return sched;
+    }
+
+    /**
+     * @return 调度器的运行统计
+     */
+    public ScheduleMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return 按任务组限流的 JobAdmissionController
+     */
+    public JobAdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * @return 合并修改触发时间的请求的 ScheduleUpdateCoalescer，时间窗口为 ScheduleUpdateCoalescer.DEFAULT_WINDOW_MILLIS
+     */
+    public synchronized ScheduleUpdateCoalescer getUpdateCoalescer() {
+        if (updateCoalescer == null || updateCoalescer.isClosed()) {
+            updateCoalescer = new ScheduleUpdateCoalescer(this, ScheduleUpdateCoalescer.DEFAULT_WINDOW_MILLIS);
+        }
+        return updateCoalescer;
+    }
+
+    /**
+     * 启动调度器，已经启动的不再重复启动；正在停止时不启动，已经关闭时重新创建调度器再启动
+     */
+    public void start() throws org.quartz.SchedulerException {
+        synchronized (this) {
+            Scheduler sched = scheduler;
+            if (sched != null && sched.isShutdown()) {
+                scheduler = createScheduler();
+                stopping = false;
+            }
+        }
+        startCreated();
+    }
+
+    /**
+     * 添加任务之后启动调度器，已经启动的不再重复启动；正在停止或者已经关闭时不启动，也不重新创建
+     */
+    void startCreated() throws org.quartz.SchedulerException {
+        Scheduler sched = getScheduler();
+        if (stopping || (sched.isStarted() && !sched.isInStandbyMode())) {
+            return;
+        }
+        synchronized (this) {
+            if (!stopping && (!sched.isStarted() || sched.isInStandbyMode()) && !sched.isShutdown()) {
+                sched.start();
+            }
+        }
+    }
+
+    /**
+     * 停止调度器：先暂停触发新的任务，等待正在执行的任务完成，超时之后不再等待直接关闭
+     *
+     * @param timeoutMillis 等待正在执行的任务的最长时间（毫秒）
+     * @return 正在执行的任务是否在超时之前全部完成
+     */
+    public boolean shutdownGracefully(long timeoutMillis) {
+        Scheduler sched;
+        ScheduleUpdateCoalescer coalescer;
+        synchronized (this) {
+            sched = scheduler;
+            if (sched == null) {
+                return true;
+            }
+            coalescer = updateCoalescer;
+            updateCoalescer = null;
+        }
+        //先保存等待的修改
+        if (coalescer != null) {
+            coalescer.close();
+        }
+        synchronized (this) {
+            stopping = true;
+        }
+        metrics.uninstall();
+        boolean drained = false;
+        try {
+            if (sched.isShutdown()) {
+                return true;
+            }
+            sched.standby();
+            //停止时不再推迟任务，已经触发的任务直接执行
+            admission.close();
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!(drained = sched.getCurrentlyExecutingJobs().isEmpty()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            if (!drained) {
+                logger.warn("scheduler shutdown timeout, {} jobs still running", sched.getCurrentlyExecutingJobs().size());
+            }
+            sched.shutdown(drained);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shutdownNow(sched);
+        } catch (Exception e) {
+            logger.warn("scheduler shutdown error", e);
+            shutdownNow(sched);
+        }
+        return drained;
+    }
+
+    private void shutdownNow(Scheduler sched) {
+        try {
+            sched.shutdown(false);
+        } catch (Exception e) {
+            logger.warn("scheduler shutdown error", e);
+        }
+    }
+
+    /**
+     * @return 调度器已经启动、没有暂停也没有关闭
+     */
+    public boolean isHealthy() {
+        Scheduler sched = scheduler;
+        try {
+            return sched != null && sched.isStarted() && !sched.isInStandbyMode() && !sched.isShutdown();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return 调度器的状态，用于健康检查的输出
+     */
+    public String getStatus() {
+        Scheduler sched = scheduler;
+        if (sched == null) {
+            return "NOT_CREATED";
+        }
+        try {
+            if (sched.isShutdown()) {
+                return "SHUTDOWN";
+            }
+            if (!sched.isStarted() || sched.isInStandbyMode()) {
+                return stopping ? "STOPPING" : "STANDBY";
+            }
+            return "STARTED, running jobs: " + sched.getCurrentlyExecutingJobs().size();
+        } catch (Exception e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package ren.kura.utils;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobListener;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.TriggerListener;
+import org.quartz.impl.matchers.EverythingMatcher;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 16:00
+ * @Description: 调度器的运行统计，按任务组记录触发延迟（实际触发时间减去计划触发时间）、执行耗时、错过触发的次数和执行失败的次数，以及线程池的使用率
+ * 作为 TriggerListener 和 JobListener 注册到 ScheduleManager 创建的调度器上，只用原子计数器累加，不加锁；同时注册为 MXBean，可以在 JConsole 中查看
+ * 使用 withMisfireHandlingInstructionIgnoreMisfires 的触发器错过触发时 Quartz 不会通知 triggerMisfired，所以延迟超过 lateThresholdMillis 的触发单独计为 lateFired
+ */
+public class ScheduleMetrics implements TriggerListener, JobListener, ScheduleMetricsMXBean {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleMetrics.class);
+
+    /**
+     * 直方图的桶数，第i个桶为小于 2^i 毫秒并且不小于 2^(i-1) 毫秒，最后一个桶包括所有更长的时间
+     */
+    private static final int TIME_BUCKETS = 24;
+
+    private final ConcurrentMap<String, GroupStats> groups = new ConcurrentHashMap<>();
+
+    private final AtomicInteger runningJobs = new AtomicInteger();
+
+    private final AtomicInteger peakRunningJobs = new AtomicInteger();
+
+    private final AtomicLong busyMillis = new AtomicLong();
+
+    private volatile long resetAt = System.currentTimeMillis();
+
+    /**
+     * 和 quartz.properties 中的 org.quartz.jobStore.misfireThreshold 一致
+     */
+    private volatile long lateThresholdMillis = 60000L;
+
+    private volatile Scheduler scheduler;
+
+    private volatile int poolSize;
+
+    private ObjectName objectName;
+
+    /**
+     * 注册监听器和 MXBean，调度器重新创建之后需要重新注册
+     */
+    synchronized void install(Scheduler sched) throws org.quartz.SchedulerException {
+        sched.getListenerManager().addTriggerListener(this, EverythingMatcher.allTriggers());
+        sched.getListenerManager().addJobListener(this, EverythingMatcher.allJobs());
+        scheduler = sched;
+        poolSize = sched.getMetaData().getThreadPoolSize();
+        if (objectName != null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName("ren.kura.utils:type=ScheduleMetrics,name="
+                    + ObjectName.quote(sched.getSchedulerName() + "_" + sched.getSchedulerInstanceId()));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+                objectName = name;
+            }
+        } catch (Exception e) {
+            logger.warn("register schedule metrics mbean error", e);
+        }
+    }
+
+    /**
+     * 注销 MXBean，避免重新部署时 MBeanServer 引用旧的类加载器
+     */
+    synchronized void uninstall() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            logger.warn("unregister schedule metrics mbean error", e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String getName() {
+        return "ScheduleMetrics";
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        GroupStats stats = stats(context.getJobDetail().getKey().getGroup());
+        stats.fired.incrementAndGet();
+        Date scheduled = context.getScheduledFireTime();
+        if (scheduled != null) {
+            long latency = Math.max(0, context.getFireTime().getTime() - scheduled.getTime());
+            stats.latency.record(latency);
+            if (latency > lateThresholdMillis) {
+                stats.lateFired.incrementAndGet();
+                logger.debug("job {} fired {} ms late", context.getJobDetail().getKey(), latency);
+            }
+        }
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        stats(trigger.getJobKey().getGroup()).misfired.incrementAndGet();
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context, Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        stats(context.getJobDetail().getKey().getGroup()).running.incrementAndGet();
+        int running = runningJobs.incrementAndGet();
+        int peak = peakRunningJobs.get();
+        while (running > peak && !peakRunningJobs.compareAndSet(peak, running)) {
+            peak = peakRunningJobs.get();
+        }
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        GroupStats stats = stats(context.getJobDetail().getKey().getGroup());
+        stats.running.decrementAndGet();
+        runningJobs.decrementAndGet();
+        long duration = Math.max(0, context.getJobRunTime());
+        stats.duration.record(duration);
+        busyMillis.addAndGet(duration);
+        if (jobException != null) {
+            stats.failed.incrementAndGet();
+        }
+    }
+
+    private GroupStats stats(String group) {
+        GroupStats stats = groups.get(group);
+        if (stats == null) {
+            GroupStats created = new GroupStats();
+            stats = groups.putIfAbsent(group, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public long getFiredCount() {
+        long count = 0;
+        for (GroupStats stats : groups.values()) {
+            count += stats.fired.get();
+        }
+        return count;
+    }
+
+    @Override
+    public long getMisfiredCount() {
+        long count = 0;
+        for (GroupStats stats : groups.values()) {
+            count += stats.misfired.get();
+        }
+        return count;
+    }
+
+    @Override
+    public long getLateFiredCount() {
+        long count = 0;
+        for (GroupStats stats : groups.values()) {
+            count += stats.lateFired.get();
+        }
+        return count;
+    }
+
+    @Override
+    public long getFailedCount() {
+        long count = 0;
+        for (GroupStats stats : groups.values()) {
+            count += stats.failed.get();
+        }
+        return count;
+    }
+
+    @Override
+    public int getRunningJobs() {
+        return runningJobs.get();
+    }
+
+    @Override
+    public int getPeakRunningJobs() {
+        return peakRunningJobs.get();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return 当前正在执行的任务占线程池大小的比例
+     */
+    @Override
+    public double getPoolUtilization() {
+        int size = poolSize;
+        return size <= 0 ? 0 : (double) runningJobs.get() / size;
+    }
+
+    /**
+     * @return 从上次清空统计到现在线程池的平均使用率，即任务执行的总耗时除以时间和线程池大小的乘积
+     */
+    @Override
+    public double getAverageBusyRatio() {
+        long elapsed = System.currentTimeMillis() - resetAt;
+        int size = poolSize;
+        return elapsed <= 0 || size <= 0 ? 0 : (double) busyMillis.get() / elapsed / size;
+    }
+
+    @Override
+    public long getLateThresholdMillis() {
+        return lateThresholdMillis;
+    }
+
+    @Override
+    public void setLateThresholdMillis(long lateThresholdMillis) {
+        this.lateThresholdMillis = lateThresholdMillis;
+    }
+
+    /**
+     * @return 每个任务组的统计，按任务组名称排序
+     */
+    @Override
+    public List<GroupMetrics> getGroups() {
+        List<GroupMetrics> result = new ArrayList<>(groups.size());
+        for (Map.Entry<String, GroupStats> entry : new TreeMap<>(groups).entrySet()) {
+            result.add(new GroupMetrics(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * @return 任务组的统计，没有触发过时返回 null
+     */
+    public GroupMetrics getGroup(String group) {
+        GroupStats stats = groups.get(group);
+        return stats == null ? null : new GroupMetrics(group, stats);
+    }
+
+    /**
+     * 统计每个触发器组中已经到了触发时间还没有触发的触发器数量，即等待线程的队列长度
+     * 需要逐个读取触发器，数据库中的触发器较多时比较慢，只在排查问题时调用
+     */
+    @Override
+    public Map<String, Integer> countOverdueTriggers() {
+        Map<String, Integer> overdue = new TreeMap<>();
+        Scheduler sched = scheduler;
+        if (sched == null) {
+            return overdue;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            for (String group : sched.getTriggerGroupNames()) {
+                int count = 0;
+                for (TriggerKey key : sched.getTriggerKeys(GroupMatcher.triggerGroupEquals(group))) {
+                    Trigger trigger = sched.getTrigger(key);
+                    if (trigger != null && trigger.getNextFireTime() != null && trigger.getNextFireTime().getTime() < now) {
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    overdue.put(group, count);
+                }
+            }
+        } catch (org.quartz.SchedulerException e) {
+            logger.warn("count overdue triggers error", e);
+        }
+        return overdue;
+    }
+
+    /**
+     * 清空所有的统计，正在执行的任务数量不清空
+     */
+    @Override
+    public void reset() {
+        for (GroupStats stats : groups.values()) {
+            stats.reset();
+        }
+        peakRunningJobs.set(runningJobs.get());
+        busyMillis.set(0);
+        resetAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduleMetrics{fired=" + getFiredCount()
+                + ", misfired=" + getMisfiredCount()
+                + ", lateFired=" + getLateFiredCount()
+                + ", failed=" + getFailedCount()
+                + ", running=" + getRunningJobs() + "/" + getPoolSize()
+                + ", peakRunning=" + getPeakRunningJobs()
+                + ", busyRatio=" + String.format("%.3f", getAverageBusyRatio())
+                + ", groups=" + getGroups() + "}";
+    }
+
+    /**
+     * 按2的幂分桶的毫秒直方图
+     */
+    private static final class TimeHistogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(TIME_BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long millis) {
+            buckets.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(millis), TIME_BUCKETS - 1));
+            count.incrementAndGet();
+            sum.addAndGet(millis);
+            long current = max.get();
+            while (millis > current && !max.compareAndSet(current, millis)) {
+                current = max.get();
+            }
+        }
+
+        double average() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        /**
+         * @return key为桶的毫秒上限（不包含），最后一个桶的key为 Long.MAX_VALUE
+         */
+        Map<Long, Long> toMap() {
+            Map<Long, Long> histogram = new TreeMap<>();
+            for (int i = 0; i < TIME_BUCKETS; i++) {
+                long n = buckets.get(i);
+                if (n > 0) {
+                    histogram.put(i == TIME_BUCKETS - 1 ? Long.MAX_VALUE : 1L << i, n);
+                }
+            }
+            return histogram;
+        }
+
+        void reset() {
+            for (int i = 0; i < TIME_BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+
+    private static final class GroupStats {
+        private final AtomicLong fired = new AtomicLong();
+        private final AtomicLong misfired = new AtomicLong();
+        private final AtomicLong lateFired = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicInteger running = new AtomicInteger();
+        private final TimeHistogram latency = new TimeHistogram();
+        private final TimeHistogram duration = new TimeHistogram();
+
+        void reset() {
+            fired.set(0);
+            misfired.set(0);
+            lateFired.set(0);
+            failed.set(0);
+            latency.reset();
+            duration.reset();
+        }
+    }
+
+    /**
+     * 一个任务组的统计快照
+     */
+    public static final class GroupMetrics {
+        private final String group;
+        private final long fired;
+        private final long misfired;
+        private final long lateFired;
+        private final long failed;
+        private final int running;
+        private final double averageLatencyMillis;
+        private final long maxLatencyMillis;
+        private final double averageDurationMillis;
+        private final long maxDurationMillis;
+        private final Map<Long, Long> latencyHistogram;
+        private final Map<Long, Long> durationHistogram;
+
+        private GroupMetrics(String group, GroupStats stats) {
+            this.group = group;
+            this.fired = stats.fired.get();
+            this.misfired = stats.misfired.get();
+            this.lateFired = stats.lateFired.get();
+            this.failed = stats.failed.get();
+            this.running = stats.running.get();
+            this.averageLatencyMillis = stats.latency.average();
+            this.maxLatencyMillis = stats.latency.max.get();
+            this.averageDurationMillis = stats.duration.average();
+            this.maxDurationMillis = stats.duration.max.get();
+            this.latencyHistogram = stats.latency.toMap();
+            this.durationHistogram = stats.duration.toMap();
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public long getFired() {
+            return fired;
+        }
+
+        public long getMisfired() {
+            return misfired;
+        }
+
+        public long getLateFired() {
+            return lateFired;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public double getAverageLatencyMillis() {
+            return averageLatencyMillis;
+        }
+
+        public long getMaxLatencyMillis() {
+            return maxLatencyMillis;
+        }
+
+        public double getAverageDurationMillis() {
+            return averageDurationMillis;
+        }
+
+        public long getMaxDurationMillis() {
+            return maxDurationMillis;
+        }
+
+        /**
+         * @return 触发延迟的直方图，key为桶的毫秒上限（不包含）
+         */
+        public Map<Long, Long> getLatencyHistogram() {
+            return latencyHistogram;
+        }
+
+        /**
+         * @return 执行耗时的直方图，key为桶的毫秒上限（不包含）
+         */
+        public Map<Long, Long> getDurationHistogram() {
+            return durationHistogram;
+        }
+
+        @Override
+        public String toString() {
+            return group + "{fired=" + fired
+                    + ", misfired=" + misfired
+                    + ", lateFired=" + lateFired
+                    + ", failed=" + failed
+                    + ", running=" + running
+                    + ", avgLatencyMs=" + String.format("%.1f", averageLatencyMillis)
+                    + ", maxLatencyMs=" + maxLatencyMillis
+                    + ", avgDurationMs=" + String.format("%.1f", averageDurationMillis)
+                    + ", maxDurationMs=" + maxDurationMillis + "}";
+        }
+    }
+}
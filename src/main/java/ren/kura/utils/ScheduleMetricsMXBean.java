@@ -0,0 +1,41 @@
+package ren.kura.utils;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 16:00
+ * @Description: ScheduleMetrics 通过 JMX 暴露的属性和操作，ObjectName 为 ren.kura.utils:type=ScheduleMetrics,name=调度器名称
+ */
+public interface ScheduleMetricsMXBean {
+
+    long getFiredCount();
+
+    long getMisfiredCount();
+
+    long getLateFiredCount();
+
+    long getFailedCount();
+
+    int getRunningJobs();
+
+    int getPeakRunningJobs();
+
+    int getPoolSize();
+
+    double getPoolUtilization();
+
+    double getAverageBusyRatio();
+
+    long getLateThresholdMillis();
+
+    void setLateThresholdMillis(long lateThresholdMillis);
+
+    List<ScheduleMetrics.GroupMetrics> getGroups();
+
+    Map<String, Integer> countOverdueTriggers();
+
+    void reset();
+}
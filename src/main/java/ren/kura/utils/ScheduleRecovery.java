@@ -0,0 +1,264 @@
+package ren.kura.utils;
+
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 11:00
+ * @Description: 项目启动时在后台恢复所有的触发器，不阻塞项目的启动
+ * 按触发器组读取所有的触发器，每 pageSize 个一页，由多个线程并行检查
+ * 只有出错（ERROR）、没有下次触发时间或者下次触发时间已经过去的触发器才重新安排，其他的触发器跳过，不重写数据库
+ * 恢复完成之后启动调度器，可以通过 isReady / awaitReady 查询是否完成，通过计数器查看进度
+ */
+public class ScheduleRecovery implements Runnable {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleRecovery.class);
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final ScheduleManager scheduleManager;
+
+    private final int threads;
+
+    private final int pageSize;
+
+    private final CountDownLatch ready = new CountDownLatch(1);
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong processed = new AtomicLong();
+
+    private final AtomicLong rearmed = new AtomicLong();
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean cancelled = false;
+
+    private volatile long startNanos;
+
+    private volatile long elapsedNanos;
+
+    private volatile Thread thread;
+
+    /**
+     * @param scheduleManager 管理调度器
+     * @param threads         并行检查的线程数量，使用 JobStoreTX 时不要超过数据源的连接数
+     * @param pageSize        每页的触发器数量
+     */
+    public ScheduleRecovery(ScheduleManager scheduleManager, int threads, int pageSize) {
+        if (threads <= 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("threads and pageSize must be positive");
+        }
+        this.scheduleManager = scheduleManager;
+        this.threads = threads;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * 在后台线程中开始恢复
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this, "schedule-recovery-" + SEQUENCE.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止恢复，已经提交的页处理完之后结束；调度器不会启动
+     */
+    public void cancel() {
+        cancelled = true;
+        Thread t = thread;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        startNanos = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, Thread.currentThread().getName() + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            Scheduler scheduler = scheduleManager.getScheduler();
+            //同时处理中的页数有上限，避免一次读取所有的触发器
+            Deque<Future<?>> inFlight = new ArrayDeque<>();
+            List<String> triggerGroups = scheduler.getTriggerGroupNames();
+            for (String group : triggerGroups) {
+                if (cancelled) {
+                    break;
+                }
+                List<TriggerKey> keys = new ArrayList<>(scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(group)));
+                total.addAndGet(keys.size());
+                for (int from = 0; from < keys.size() && !cancelled; from += pageSize) {
+                    if (inFlight.size() >= threads * 2) {
+                        inFlight.poll().get();
+                    }
+                    inFlight.add(executor.submit(new Page(scheduler, keys.subList(from, Math.min(from + pageSize, keys.size())))));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().get();
+            }
+            if (!cancelled) {
+                scheduleManager.startCreated();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("schedule recovery error", e);
+        } finally {
+            executor.shutdownNow();
+            elapsedNanos = System.nanoTime() - startNanos;
+            ready.countDown();
+            logger.info("schedule recovery {}: {}", cancelled ? "cancelled" : "finished", this);
+        }
+    }
+
+    /**
+     * 检查一个触发器，需要时重新安排
+     */
+    private void recover(Scheduler scheduler, TriggerKey triggerKey, Date now) {
+        try {
+            Trigger trigger = scheduler.getTrigger(triggerKey);
+            if (trigger == null) {
+                //已经被删除
+                skipped.incrementAndGet();
+                return;
+            }
+            Trigger.TriggerState state = scheduler.getTriggerState(triggerKey);
+            Date next = trigger.getNextFireTime();
+            if (state != Trigger.TriggerState.ERROR && next != null && !next.before(now)) {
+                skipped.incrementAndGet();
+                return;
+            }
+            //按原来的trigger重新设置job执行
+            scheduler.rescheduleJob(triggerKey, trigger);
+            rearmed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.warn("recover trigger {} error: {}", triggerKey, e.getMessage());
+        } finally {
+            processed.incrementAndGet();
+        }
+    }
+
+    /**
+     * 一页触发器
+     */
+    private class Page implements Runnable {
+        private final Scheduler scheduler;
+        private final List<TriggerKey> keys;
+
+        Page(Scheduler scheduler, List<TriggerKey> keys) {
+            this.scheduler = scheduler;
+            this.keys = keys;
+        }
+
+        @Override
+        public void run() {
+            Date now = new Date();
+            for (TriggerKey key : keys) {
+                if (cancelled) {
+                    return;
+                }
+                recover(scheduler, key, now);
+            }
+        }
+    }
+
+    /**
+     * @return 恢复是否已经结束（完成、取消或者出错）
+     */
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /**
+     * 等待恢复结束
+     *
+     * @return 超时之前是否已经结束
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return ready.await(timeout, unit);
+    }
+
+    /**
+     * @return 已经读取到的触发器数量
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * @return 重新安排的触发器数量
+     */
+    public long getRearmed() {
+        return rearmed.get();
+    }
+
+    /**
+     * @return 不需要重新安排的触发器数量
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return 恢复的耗时（毫秒），没有结束时为已经运行的时间
+     */
+    public long getElapsedMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(isReady() ? elapsedNanos : System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduleRecovery{ready=" + isReady() + ", total=" + getTotal() + ", processed=" + getProcessed()
+                + ", rearmed=" + getRearmed() + ", skipped=" + getSkipped() + ", failed=" + getFailed()
+                + ", elapsedMillis=" + getElapsedMillis() + "}";
+    }
+}
@@ -1,62 +1,89 @@
 package ren.kura.utils;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerFactory;
-import org.quartz.Trigger;
-import org.quartz.TriggerKey;
-import org.quartz.impl.StdSchedulerFactory;
 
+import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
-import java.util.List;
 
 /**
  * @author: liuha
  * @Date: 2018/8/21
  * @Time: 11:31
  * @Description: 保证项目启动或重启时, 所有任务会被重新安排到任务调度中.
+ * 恢复在后台线程中进行，不阻塞项目的启动，恢复的进度保存在 ServletContext 的 scheduleRecovery 属性中
+ * 可以通过 context-param 配置：scheduleRecoveryThreads 恢复的线程数（默认4），scheduleRecoveryPageSize 每页的触发器数量（默认500）
+ * 项目停止时关闭调度器，等待正在执行的任务的时间可以通过 context-param scheduleShutdownTimeout（毫秒）配置
+ * 使用 SnapshotRAMJobStore 时，恢复开始创建调度器时先从最近的快照加载任务和触发器，再重新安排其中已经过期的触发器；停止时写入最后一次快照
  */
 public class ScheduleStartListener implements ServletContextListener {
 
+    /**
+     * ServletContext 中保存 ScheduleRecovery 的属性名
+     */
+    public static final String RECOVERY_ATTRIBUTE = "scheduleRecovery";
+
+    /**
+     * 默认等待正在执行的任务30秒
+     */
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT = 30000L;
+
+    private static final int DEFAULT_RECOVERY_THREADS = 4;
+
+    private static final int DEFAULT_RECOVERY_PAGE_SIZE = 500;
+
+    private volatile ScheduleRecovery recovery;
+
     @Override
     public void contextInitialized(ServletContextEvent sce) {
-        try {
-           recovery();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        ServletContext context = sce.getServletContext();
+        ScheduleRecovery started = recovery(
+                (int) getLong(context, "scheduleRecoveryThreads", DEFAULT_RECOVERY_THREADS),
+                (int) getLong(context, "scheduleRecoveryPageSize", DEFAULT_RECOVERY_PAGE_SIZE));
+        context.setAttribute(RECOVERY_ATTRIBUTE, started);
     }
 
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        ScheduleRecovery running = recovery;
+        if (running != null) {
+            running.cancel();
+        }
+        ScheduleManager.getInstance().shutdownGracefully(getLong(sce.getServletContext(), "scheduleShutdownTimeout", DEFAULT_SHUTDOWN_TIMEOUT));
+    }
+
+    /**
+     * 使用默认的配置在后台恢复所有的触发器
+     */
+    public ScheduleRecovery recovery() {
+        return recovery(DEFAULT_RECOVERY_THREADS, DEFAULT_RECOVERY_PAGE_SIZE);
+    }
+
+    /**
+     * 在后台恢复所有的触发器，恢复完成之后启动调度器
+     *
+     * @param threads  并行检查的线程数量
+     * @param pageSize 每页的触发器数量
+     * @return 恢复的进度
+     */
+    public ScheduleRecovery recovery(int threads, int pageSize) {
+        //和 ScheduledUtils 共用同一个调度器
+        ScheduleRecovery started = new ScheduleRecovery(ScheduleManager.getInstance(), threads, pageSize);
+        recovery = started;
+        started.start();
+        return started;
+    }
+
+    /**
+     * @return 当前的恢复进度，没有开始恢复时为null
+     */
+    public ScheduleRecovery getRecovery() {
+        return recovery;
     }
 
-    public void recovery() {
-
-        Scheduler scheduler = null;
-
-        try {
-
-            SchedulerFactory schedulerFactory = new StdSchedulerFactory();
-            //可以通过SchedulerFactory创建一个Scheduler实例
-            scheduler = schedulerFactory.getScheduler();
-            //获取调度器中所有的触发器组
-            List<String> triggerGroups = scheduler.getTriggerGroupNames();
-            System.out.println("调度器中所有的触发器组 size():" + triggerGroups.size());
-           //重新恢复在triggerGroups组中所有的触发器
-            if (triggerGroups != null && triggerGroups.size() != 0) {
-                for (int i = 0; i < triggerGroups.size(); i++) {
-                    TriggerKey triggerKey = TriggerKey.triggerKey(triggerGroups.get(i), triggerGroups.get(i));
-                    System.out.println("triggerKey:" + triggerKey);
-           //获取trigger
-                    Trigger tg = scheduler.getTrigger(triggerKey);
-                    System.out.println(triggerKey + " -> 执行时间 :" + tg.getNextFireTime());
-           //按新的trigger重新设置job执行
-                    scheduler.rescheduleJob(triggerKey, tg);
-                }
-            }
-            scheduler.start();
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static long getLong(ServletContext context, String name, long defaultValue) {
+        String value = context.getInitParameter(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
         }
+        return Long.parseLong(value.trim());
     }
 }
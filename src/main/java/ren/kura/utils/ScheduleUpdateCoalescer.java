@@ -0,0 +1,301 @@
+package ren.kura.utils;
+
+import org.quartz.JobDetail;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 16:30
+ * @Description: 合并短时间内对同一个触发器的多次修改，只保存最后一次的触发时间
+ * 修改先放入等待队列，同一个触发器在 windowMillis 内的修改覆盖之前的修改；到期之后读取触发器比较触发时间，没有变化的不写数据库
+ * 有变化的通过 scheduleJobs(replace=true) 按批保存，使用 JobStoreTX 时每批是一个事务，并且是更新而不是 rescheduleJob 的删除再插入；整批失败时逐个 rescheduleJob
+ */
+public class ScheduleUpdateCoalescer {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleUpdateCoalescer.class);
+
+    public static final long DEFAULT_WINDOW_MILLIS = 1000L;
+
+    private final ScheduleManager scheduleManager;
+
+    private final long windowMillis;
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * 等待保存的修改，按第一次修改的顺序
+     */
+    private final Map<TriggerKey, Pending> pending = new LinkedHashMap<>();
+
+    /**
+     * 保证先到期的修改先保存
+     */
+    private final Object flushLock = new Object();
+
+    private final AtomicLong requestedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong unchangedCount = new AtomicLong();
+
+    private final AtomicLong missingCount = new AtomicLong();
+
+    private final AtomicLong appliedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong batchCount = new AtomicLong();
+
+    /**
+     * @param scheduleManager 使用的调度器
+     * @param windowMillis    合并的时间窗口（毫秒），从第一次修改开始计算
+     */
+    public ScheduleUpdateCoalescer(ScheduleManager scheduleManager, long windowMillis) {
+        this.scheduleManager = scheduleManager;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "schedule-update-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(10, this.windowMillis / 4);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush(false);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 修改触发器的触发时间，在时间窗口结束之后保存
+     *
+     * @param triggerKey 触发器
+     * @param updateDate 更新后的触发时间
+     */
+    public void modifyJobTime(TriggerKey triggerKey, Date updateDate) {
+        if (triggerKey == null || updateDate == null) {
+            throw new IllegalArgumentException("triggerKey and updateDate are required");
+        }
+        if (executor.isShutdown()) {
+            throw new IllegalStateException("coalescer is closed");
+        }
+        requestedCount.incrementAndGet();
+        synchronized (pending) {
+            Pending previous = pending.get(triggerKey);
+            if (previous != null) {
+                previous.updateDate = updateDate;
+                coalescedCount.incrementAndGet();
+            } else {
+                pending.put(triggerKey, new Pending(triggerKey, updateDate, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    /**
+     * 立刻保存所有等待的修改
+     */
+    public void flush() {
+        flush(true);
+    }
+
+    /**
+     * 保存所有等待的修改并停止后台线程
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(windowMillis + 5000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+    }
+
+    public boolean isClosed() {
+        return executor.isShutdown();
+    }
+
+    private void flush(boolean all) {
+        synchronized (flushLock) {
+            List<Pending> due = drain(all ? Long.MAX_VALUE : System.currentTimeMillis() - windowMillis);
+            for (int from = 0; from < due.size(); from += ScheduledUtils.DEFAULT_BATCH_SIZE) {
+                apply(due.subList(from, Math.min(from + ScheduledUtils.DEFAULT_BATCH_SIZE, due.size())));
+            }
+        }
+    }
+
+    /**
+     * @return 第一次修改的时间不晚于 queuedBefore 的修改
+     */
+    private List<Pending> drain(long queuedBefore) {
+        List<Pending> due = new ArrayList<>();
+        synchronized (pending) {
+            Iterator<Pending> iterator = pending.values().iterator();
+            while (iterator.hasNext()) {
+                Pending p = iterator.next();
+                //按第一次修改的顺序排列，遇到没有到期的就结束
+                if (p.queuedAt > queuedBefore) {
+                    break;
+                }
+                due.add(p);
+                iterator.remove();
+            }
+        }
+        return due;
+    }
+
+    private void apply(List<Pending> batch) {
+        Map<JobDetail, Set<? extends Trigger>> triggersAndJobs = new LinkedHashMap<>();
+        Map<JobDetail, Set<Trigger>> triggersByJob = new LinkedHashMap<>();
+        Map<TriggerKey, Trigger> changed = new LinkedHashMap<>();
+        Scheduler sched;
+        try {
+            sched = scheduleManager.getScheduler();
+            for (Pending p : batch) {
+                Trigger trigger = sched.getTrigger(p.triggerKey);
+                if (trigger == null) {
+                    missingCount.incrementAndGet();
+                    continue;
+                }
+                Trigger newTrigger = ScheduledUtils.rescheduledTrigger(trigger, p.updateDate,
+                        scheduleManager.getAdmission().getPolicy(trigger.getJobKey().getGroup()));
+                if (newTrigger == null) {
+                    unchangedCount.incrementAndGet();
+                    continue;
+                }
+                JobDetail jobDetail = sched.getJobDetail(trigger.getJobKey());
+                Set<Trigger> triggers = triggersByJob.get(jobDetail);
+                if (triggers == null) {
+                    triggers = new HashSet<>();
+                    triggersByJob.put(jobDetail, triggers);
+                    triggersAndJobs.put(jobDetail, triggers);
+                }
+                triggers.add(newTrigger);
+                changed.put(p.triggerKey, newTrigger);
+            }
+        } catch (Exception e) {
+            failedCount.addAndGet(batch.size());
+            logger.warn("coalesced modifyJobTime of {} triggers failed: {}", batch.size(), e.getMessage());
+            return;
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            sched.scheduleJobs(triggersAndJobs, true);
+            appliedCount.addAndGet(changed.size());
+            batchCount.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("coalesced modifyJobTime batch of {} failed, retry one by one: {}", changed.size(), e.getMessage());
+            for (Map.Entry<TriggerKey, Trigger> entry : changed.entrySet()) {
+                try {
+                    sched.rescheduleJob(entry.getKey(), entry.getValue());
+                    appliedCount.incrementAndGet();
+                } catch (Exception ex) {
+                    failedCount.incrementAndGet();
+                    logger.warn("modifyJobTime {} failed: {}", entry.getKey(), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 等待保存的修改数量
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public long getRequestedCount() {
+        return requestedCount.get();
+    }
+
+    /**
+     * @return 被之后的修改覆盖的修改数量
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return 触发时间没有变化、不需要保存的修改数量
+     */
+    public long getUnchangedCount() {
+        return unchangedCount.get();
+    }
+
+    /**
+     * @return 保存时触发器已经不存在的修改数量
+     */
+    public long getMissingCount() {
+        return missingCount.get();
+    }
+
+    public long getAppliedCount() {
+        return appliedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return 和每次修改都直接保存相比节省的写入次数
+     */
+    public long getSavedWrites() {
+        return coalescedCount.get() + unchangedCount.get() + missingCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduleUpdateCoalescer{requested=" + getRequestedCount()
+                + ", coalesced=" + getCoalescedCount()
+                + ", unchanged=" + getUnchangedCount()
+                + ", missing=" + getMissingCount()
+                + ", applied=" + getAppliedCount()
+                + ", failed=" + getFailedCount()
+                + ", batches=" + getBatchCount()
+                + ", pending=" + getPendingCount() + "}";
+    }
+
+    private static final class Pending {
+        private final TriggerKey triggerKey;
+        private final long queuedAt;
+        private Date updateDate;
+
+        Pending(TriggerKey triggerKey, Date updateDate, long queuedAt) {
+            this.triggerKey = triggerKey;
+            this.updateDate = updateDate;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -3,50 +3,140 @@ package ren.kura.utils;
 
 import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
+import org.quartz.Job;
 import org.quartz.JobBuilder;
 import org.quartz.JobDetail;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
-import org.quartz.SchedulerFactory;
+import org.quartz.SimpleScheduleBuilder;
 import org.quartz.Trigger;
 import org.quartz.TriggerBuilder;
 import org.quartz.TriggerKey;
-import org.quartz.impl.StdSchedulerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * @author: liuha
  * @Date: 2018/8/21
  * @Time: 11:11
  * @Description: 这个类用于管理定时器的配置
+ * 默认的 CRON 模式把触发时间转换为指定年份的cron；ONE_SHOT 模式使用只触发一次的 SimpleTrigger，精确到秒，触发之后自动删除
  */
 public class ScheduledUtils {
     //日志对象
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private SchedulerFactory schedulerFactory = new StdSchedulerFactory();
+    //共用的调度器，不再每次调用都从 StdSchedulerFactory 查找
+    private final ScheduleManager scheduleManager;
+
+    /**
+     * 批量添加时每个事务保存的任务数量
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * 触发器的 JobDataMap 中保存的推迟之前的触发时间（毫秒，字符串），修改触发时间时用它判断时间是否变化
+     */
+    static final String REQUESTED_TIME_KEY = "requestedTime";
+
+    /**
+     * 触发器的类型
+     */
+    public enum TriggerMode {
+        /**
+         * 转换为指定年份的cron，精确到分钟
+         */
+        CRON,
+        /**
+         * 只触发一次的 SimpleTrigger，精确到秒，不需要解析cron；触发之后触发器和任务自动删除
+         */
+        ONE_SHOT
+    }
+
+    private final TriggerMode triggerMode;
+
+    /**
+     * CRON 模式计算cron使用的时区
+     */
+    private final TimeZone timeZone;
+
+    /**
+     * 使用 CRON 模式和默认的时区
+     */
+    public ScheduledUtils() {
+        this(TriggerMode.CRON, TimeZone.getDefault());
+    }
+
+    /**
+     * @param triggerMode 新增任务使用的触发器类型；修改触发时间时沿用原来的触发器类型
+     * @param timeZone    CRON 模式计算cron使用的时区，ONE_SHOT 模式直接使用触发的时刻，和时区无关
+     */
+    public ScheduledUtils(TriggerMode triggerMode, TimeZone timeZone) {
+        this(ScheduleManager.getInstance(), triggerMode, timeZone);
+    }
+
+    /**
+     * @param scheduleManager 使用的调度器，比如集群模式下在同一个 JVM 中测试的多个调度器
+     * @param triggerMode     新增任务使用的触发器类型；修改触发时间时沿用原来的触发器类型
+     * @param timeZone        CRON 模式计算cron使用的时区
+     */
+    public ScheduledUtils(ScheduleManager scheduleManager, TriggerMode triggerMode, TimeZone timeZone) {
+        this.scheduleManager = scheduleManager;
+        this.triggerMode = triggerMode;
+        this.timeZone = timeZone;
+    }
+
+    public TriggerMode getTriggerMode() {
+        return triggerMode;
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    /**
+     * @return 调度器的运行统计：按任务组的触发延迟、执行耗时、错过触发的次数和线程池的使用率
+     */
+    public ScheduleMetrics getMetrics() {
+        return scheduleManager.getMetrics();
+    }
 
     /**
      * 将时间转换为cron 字符串
      *
-     * @param Date 定时器启动的时间
+     * @param date     定时器启动的时间
+     * @param timeZone 时区
      * @return
      */
-    private String getCron(Date Date) {
-        String cron = "0";
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(Date);
-        cron += " " + calendar.get(Calendar.MINUTE);
-        cron += " " + calendar.get(Calendar.HOUR_OF_DAY);
-        cron += " " + calendar.get(Calendar.DAY_OF_MONTH);
-        cron += " " + (calendar.get(Calendar.MONTH) + 1);
-        cron += " ?";
-        cron += " " + calendar.get(Calendar.YEAR);
-        return cron;
+    private static String getCron(Date date, TimeZone timeZone) {
+        return getCron(date, timeZone, false);
+    }
+
+    /**
+     * @param keepSeconds 是否保留秒，为 false 时在整分钟触发
+     */
+    private static String getCron(Date date, TimeZone timeZone, boolean keepSeconds) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTime(date);
+        return new StringBuilder(24).append(keepSeconds ? calendar.get(Calendar.SECOND) : 0).append(' ')
+                .append(calendar.get(Calendar.MINUTE)).append(' ')
+                .append(calendar.get(Calendar.HOUR_OF_DAY)).append(' ')
+                .append(calendar.get(Calendar.DAY_OF_MONTH)).append(' ')
+                .append(calendar.get(Calendar.MONTH) + 1).append(" ? ")
+                .append(calendar.get(Calendar.YEAR)).toString();
     }
 
     /**
@@ -64,30 +154,13 @@ public class ScheduledUtils {
                        String triggerName, String triggerGroupName, Class jobClass, Date startDate, String jobId) throws com.chq.qft.inspect.exception.SchedulerException {
 
         try {
-            Scheduler sched = schedulerFactory.getScheduler();
-            // 任务名，任务组，任务执行类
-            JobDetail jobDetail = JobBuilder.newJob(jobClass).withIdentity(jobName, jobGroupName).build();
-            jobDetail.getJobDataMap().put("jobId", jobId);
-            // 触发器
-            TriggerBuilder<Trigger> triggerBuilder = TriggerBuilder.newTrigger();
-            // 触发器名,触发器组
-            triggerBuilder.withIdentity(triggerName, triggerGroupName);
-            triggerBuilder.startNow();
-            /**
-             * 设置定时器为过期后 以当前时间为触发频率立刻触发一次执行
-             */
-            CronScheduleBuilder csb = CronScheduleBuilder.cronSchedule(getCron(startDate));
-            csb.withMisfireHandlingInstructionIgnoreMisfires();
-            // 触发器时间设定
-            triggerBuilder.withSchedule(csb);
-            // 创建Trigger对象
-            CronTrigger trigger = (CronTrigger) triggerBuilder.build();
+            Scheduler sched = scheduleManager.getScheduler();
+            JobDetail jobDetail = buildJobDetail(jobName, jobGroupName, jobClass, jobId);
+            Trigger trigger = buildTrigger(triggerName, triggerGroupName, jobGroupName, startDate);
             // 调度容器设置JobDetail和Trigger
             sched.scheduleJob(jobDetail, trigger);
-            // 启动
-            if (!sched.isShutdown()) {
-                sched.start();
-            }
+            // 启动，已经启动的不再重复启动
+            scheduleManager.startCreated();
         } catch (Exception e) {
             //将之前的错误转为运行期的错误便于spring的回滚事件
             throw new com.chq.qft.inspect.exception.SchedulerException("addJob  error :" + e.getMessage());
@@ -95,6 +168,210 @@ public class ScheduledUtils {
 
     }
 
+    /**
+     * @param specs 需要添加的定时任务
+     * @return 添加的结果
+     * @Description: 批量添加定时任务，每 DEFAULT_BATCH_SIZE 个任务一个事务
+     * @see #addJobs(Collection, int)
+     */
+    public JobBatchResult addJobs(Collection<JobSpec> specs) throws com.chq.qft.inspect.exception.SchedulerException {
+        return addJobs(specs, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param specs     需要添加的定时任务
+     * @param batchSize 每个事务保存的任务数量
+     * @return 添加的结果，失败的任务记录在 getFailures 中
+     * @Description: 批量添加定时任务
+     * 先校验所有的任务（参数、任务类、触发时间、批次内重复的名称），校验失败的任务不保存
+     * 校验通过的任务按 batchSize 分批调用 scheduleJobs，使用 JobStoreTX 时每批是一个事务
+     * 一批保存失败时（比如已经存在同名的任务）只回滚这一批，再逐个保存这一批中的任务，找出失败的任务
+     * 只有获取调度器失败时抛出异常
+     */
+    public JobBatchResult addJobs(Collection<JobSpec> specs, int batchSize) throws com.chq.qft.inspect.exception.SchedulerException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        JobBatchResult result = new JobBatchResult(specs.size());
+        Scheduler sched;
+        try {
+            sched = scheduleManager.getScheduler();
+        } catch (Exception e) {
+            throw new com.chq.qft.inspect.exception.SchedulerException("addJobs  error :" + e.getMessage(), e);
+        }
+        //校验并创建所有的任务和触发器
+        List<ValidJob> valid = new ArrayList<>(specs.size());
+        Set<JobKey> jobKeys = new HashSet<>(specs.size() * 2);
+        Set<TriggerKey> triggerKeys = new HashSet<>(specs.size() * 2);
+        int index = 0;
+        for (JobSpec spec : specs) {
+            String message = validate(spec);
+            if (message == null && !jobKeys.add(JobKey.jobKey(spec.getJobName(), spec.getJobGroupName()))) {
+                message = "duplicate job in batch";
+            }
+            if (message == null && !triggerKeys.add(TriggerKey.triggerKey(spec.getTriggerName(), spec.getTriggerGroupName()))) {
+                message = "duplicate trigger in batch";
+            }
+            if (message == null) {
+                try {
+                    valid.add(new ValidJob(index, spec));
+                } catch (Exception e) {
+                    message = e.getMessage();
+                }
+            }
+            if (message != null) {
+                result.addFailure(index, spec, message, null);
+            }
+            index++;
+        }
+        //分批保存
+        for (int from = 0; from < valid.size(); from += batchSize) {
+            List<ValidJob> batch = valid.subList(from, Math.min(from + batchSize, valid.size()));
+            Map<JobDetail, Set<? extends Trigger>> triggersAndJobs = new LinkedHashMap<>(batch.size() * 2);
+            for (ValidJob job : batch) {
+                triggersAndJobs.put(job.jobDetail, Collections.singleton(job.trigger));
+            }
+            try {
+                sched.scheduleJobs(triggersAndJobs, false);
+                result.addSucceeded(batch.size());
+            } catch (Exception e) {
+                logger.warn("addJobs batch of {} failed, retry one by one: {}", batch.size(), e.getMessage());
+                for (ValidJob job : batch) {
+                    try {
+                        sched.scheduleJob(job.jobDetail, job.trigger);
+                        result.addSucceeded(1);
+                    } catch (Exception ex) {
+                        result.addFailure(job.index, job.spec, ex.getMessage(), ex);
+                    }
+                }
+            }
+        }
+        result.sortFailures();
+        try {
+            if (result.getSucceeded() > 0) {
+                scheduleManager.startCreated();
+            }
+        } catch (Exception e) {
+            throw new com.chq.qft.inspect.exception.SchedulerException("addJobs  error :" + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * @return 校验失败的原因，校验通过时返回null
+     */
+    private String validate(JobSpec spec) {
+        if (spec == null) {
+            return "job spec is null";
+        }
+        if (spec.getJobName() == null || spec.getTriggerName() == null) {
+            return "jobName and triggerName are required";
+        }
+        if (spec.getJobClass() == null || !Job.class.isAssignableFrom(spec.getJobClass())) {
+            return "jobClass must implement " + Job.class.getName();
+        }
+        if (spec.getStartDate() == null) {
+            return "startDate is required";
+        }
+        return null;
+    }
+
+    /**
+     * @Description: 创建任务，任务名，任务组，任务执行类
+     */
+    private JobDetail buildJobDetail(String jobName, String jobGroupName, Class jobClass, String jobId) {
+        JobDetail jobDetail = JobBuilder.newJob(jobClass).withIdentity(jobName, jobGroupName).build();
+        jobDetail.getJobDataMap().put("jobId", jobId);
+        return jobDetail;
+    }
+
+    /**
+     * @Description: 按当前的触发器类型创建在startDate触发的触发器
+     * 任务组配置了 AdmissionPolicy 时使用它的优先级，并把触发时间随机推迟不超过 jitterMillis；CRON 模式从整分钟开始推迟，推迟之后保留秒
+     */
+    private Trigger buildTrigger(String triggerName, String triggerGroupName, String jobGroupName, Date startDate) {
+        AdmissionPolicy policy = scheduleManager.getAdmission().getPolicy(jobGroupName);
+        int priority = policy == null ? Trigger.DEFAULT_PRIORITY : policy.getPriority();
+        return buildTrigger(triggerName, triggerGroupName, startDate, triggerMode == TriggerMode.ONE_SHOT, timeZone, priority, policy);
+    }
+
+    /**
+     * @param oneShot 是否为只触发一次的 SimpleTrigger，否则为 cron
+     * @param policy  任务组的限流配置，可以为 null；有 jitterMillis 时随机推迟触发时间
+     * @return 触发器，JobDataMap 中保存推迟之前的触发时间
+     */
+    private static Trigger buildTrigger(String triggerName, String triggerGroupName, Date startDate, boolean oneShot,
+                                        TimeZone timeZone, int priority, AdmissionPolicy policy) {
+        long jitter = policy == null || policy.getJitterMillis() == 0 ? 0 : ThreadLocalRandom.current().nextLong(policy.getJitterMillis() + 1);
+        Trigger trigger;
+        if (oneShot) {
+            trigger = buildOneShotTrigger(triggerName, triggerGroupName, new Date(startDate.getTime() + jitter), priority);
+        } else if (jitter == 0) {
+            trigger = buildCronTrigger(triggerName, triggerGroupName, getCron(startDate, timeZone), timeZone, priority);
+        } else {
+            Calendar calendar = Calendar.getInstance(timeZone);
+            calendar.setTime(startDate);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            Date jittered = new Date(calendar.getTimeInMillis() + jitter);
+            trigger = buildCronTrigger(triggerName, triggerGroupName, getCron(jittered, timeZone, true), timeZone, priority);
+        }
+        //字符串在 useProperties=true 的 JDBC 存储中也可以保存
+        trigger.getJobDataMap().put(REQUESTED_TIME_KEY, String.valueOf(startDate.getTime()));
+        return trigger;
+    }
+
+    private static CronTrigger buildCronTrigger(String triggerName, String triggerGroupName, String cron, TimeZone timeZone, int priority) {
+        // 触发器
+        TriggerBuilder<Trigger> triggerBuilder = TriggerBuilder.newTrigger();
+        // 触发器名,触发器组
+        triggerBuilder.withIdentity(triggerName, triggerGroupName);
+        triggerBuilder.startNow();
+        triggerBuilder.withPriority(priority);
+        /**
+         * 设置定时器为过期后 以当前时间为触发频率立刻触发一次执行
+         */
+        CronScheduleBuilder csb = CronScheduleBuilder.cronSchedule(cron).inTimeZone(timeZone);
+        csb.withMisfireHandlingInstructionIgnoreMisfires();
+        // 触发器时间设定
+        triggerBuilder.withSchedule(csb);
+        // 创建Trigger对象
+        return (CronTrigger) triggerBuilder.build();
+    }
+
+    /**
+     * @Description: 只在startDate触发一次的触发器，过期之后立刻触发一次，和 CRON 模式的过期处理一致
+     */
+    private static Trigger buildOneShotTrigger(String triggerName, String triggerGroupName, Date startDate, int priority) {
+        return TriggerBuilder.newTrigger()
+                .withIdentity(triggerName, triggerGroupName)
+                .startAt(startDate)
+                .withPriority(priority)
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+                .build();
+    }
+
+    /**
+     * 校验通过的任务，已经创建好任务和触发器
+     */
+    private class ValidJob {
+        private final int index;
+        private final JobSpec spec;
+        private final JobDetail jobDetail;
+        private final Trigger trigger;
+
+        ValidJob(int index, JobSpec spec) {
+            this.index = index;
+            this.spec = spec;
+            this.jobDetail = buildJobDetail(spec.getJobName(), spec.getJobGroupName(), spec.getJobClass(), spec.getJobId());
+            this.trigger = buildTrigger(spec.getTriggerName(), spec.getTriggerGroupName(), spec.getJobGroupName(), spec.getStartDate());
+            //CRON 模式下触发时间已经过去的cron不会再触发，scheduleJob 会失败，提前校验
+            if (trigger.getFireTimeAfter(new Date(trigger.getStartTime().getTime() - 1000)) == null) {
+                throw new IllegalArgumentException("startDate " + spec.getStartDate() + " will never fire");
+            }
+        }
+    }
+
     /**
      * @param jobName          任务名
      * @param jobGroupName     任务组名
@@ -106,32 +383,18 @@ public class ScheduledUtils {
     public void modifyJobTime(String jobName,
                               String jobGroupName, String triggerName, String triggerGroupName, Date updateDate) throws com.chq.qft.inspect.exception.SchedulerException {
         try {
-            Scheduler sched = schedulerFactory.getScheduler();
+            Scheduler sched = scheduleManager.getScheduler();
             TriggerKey triggerKey = TriggerKey.triggerKey(triggerName, triggerGroupName);
-            CronTrigger trigger = (CronTrigger) sched.getTrigger(triggerKey);
+            Trigger trigger = sched.getTrigger(triggerKey);
             if (trigger == null) {
                 return;
             }
-            String cron = getCron(updateDate);
-            String oldTime = trigger.getCronExpression();
-            if (!oldTime.equalsIgnoreCase(cron)) {
+            Trigger newTrigger = rescheduledTrigger(trigger, updateDate,
+                    scheduleManager.getAdmission().getPolicy(trigger.getJobKey().getGroup()));
+            if (newTrigger != null) {
                 /** 方式一 ：调用 rescheduleJob 开始 */
-                // 触发器
-                TriggerBuilder<Trigger> triggerBuilder = TriggerBuilder.newTrigger();
-                // 触发器名,触发器组
-                triggerBuilder.withIdentity(triggerName, triggerGroupName);
-                triggerBuilder.startNow();
-                /**
-                 * 设置定时器为过期后 以当前时间为触发频率立刻触发一次执行
-                 */
-                CronScheduleBuilder csb = CronScheduleBuilder.cronSchedule(cron);
-                csb.withMisfireHandlingInstructionIgnoreMisfires();
-                // 触发器时间设定
-                triggerBuilder.withSchedule(csb);
-                // 创建Trigger对象
-                trigger = (CronTrigger) triggerBuilder.build();
                 // 方式一 ：修改一个任务的触发时间
-                sched.rescheduleJob(triggerKey, trigger);
+                sched.rescheduleJob(triggerKey, newTrigger);
                 /** 方式一 ：调用 rescheduleJob 结束 */
 
                 /** 方式二：先删除，然后在创建一个新的Job  */
@@ -147,6 +410,73 @@ public class ScheduledUtils {
         }
     }
 
+    /**
+     * @param jobName          任务名
+     * @param jobGroupName     任务组名
+     * @param triggerName      触发器名
+     * @param triggerGroupName 触发器组名
+     * @param updateDate       更新后的触发时间
+     * @Description: 修改一个任务的触发时间，不立刻保存；同一个触发器在时间窗口内的多次修改只保存最后一次，触发时间没有变化的不写数据库
+     * 适合界面上连续修改的场景，修改在 ScheduleUpdateCoalescer.DEFAULT_WINDOW_MILLIS 之后批量保存，保存失败只记录日志
+     */
+    public void modifyJobTimeLater(String jobName,
+                                   String jobGroupName, String triggerName, String triggerGroupName, Date updateDate) throws com.chq.qft.inspect.exception.SchedulerException {
+        try {
+            scheduleManager.getUpdateCoalescer().modifyJobTime(TriggerKey.triggerKey(triggerName, triggerGroupName), updateDate);
+        } catch (Exception e) {
+            throw new com.chq.qft.inspect.exception.SchedulerException("modifyJobTimeLater  error :" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param jobGroupName 任务组名
+     * @param policy       限流配置，为 null 时取消限制
+     * @Description: 设置任务组的限流：之后添加的任务使用配置的优先级和随机推迟的触发时间，触发时超过速率和并发数量的任务推迟执行，不占用线程
+     */
+    public void setAdmissionPolicy(String jobGroupName, AdmissionPolicy policy) {
+        scheduleManager.getAdmission().setPolicy(jobGroupName, policy);
+    }
+
+    /**
+     * @return 按任务组限流的统计，比如推迟的次数和推迟的总时间
+     */
+    public JobAdmissionController getAdmission() {
+        return scheduleManager.getAdmission();
+    }
+
+    /**
+     * @return 合并修改的统计，比如节省的写入次数
+     */
+    public ScheduleUpdateCoalescer getUpdateCoalescer() {
+        return scheduleManager.getUpdateCoalescer();
+    }
+
+    /**
+     * @param trigger    原来的触发器
+     * @param updateDate 更新后的触发时间
+     * @param policy     任务组的限流配置，可以为 null；和添加任务时一样随机推迟触发时间
+     * @return 沿用原来的触发器类型和优先级、在updateDate触发的新触发器；推迟之前的触发时间没有变化时返回 null
+     */
+    static Trigger rescheduledTrigger(Trigger trigger, Date updateDate, AdmissionPolicy policy) {
+        TriggerKey triggerKey = trigger.getKey();
+        Object requested = trigger.getJobDataMap().get(REQUESTED_TIME_KEY);
+        Date requestedDate = requested == null ? null : new Date(Long.parseLong(requested.toString()));
+        if (trigger instanceof CronTrigger) {
+            TimeZone triggerTimeZone = ((CronTrigger) trigger).getTimeZone();
+            String cron = getCron(updateDate, triggerTimeZone);
+            //没有保存推迟之前时间的触发器（之前版本创建的）按 cron 比较
+            String oldTime = requestedDate == null ? ((CronTrigger) trigger).getCronExpression() : getCron(requestedDate, triggerTimeZone);
+            if (oldTime.equalsIgnoreCase(cron)) {
+                return null;
+            }
+            return buildTrigger(triggerKey.getName(), triggerKey.getGroup(), updateDate, false, triggerTimeZone, trigger.getPriority(), policy);
+        }
+        if (updateDate.equals(requestedDate == null ? trigger.getStartTime() : requestedDate)) {
+            return null;
+        }
+        return buildTrigger(triggerKey.getName(), triggerKey.getGroup(), updateDate, true, null, trigger.getPriority(), policy);
+    }
+
     /**
      * @param jobName          任务名
      * @param jobGroupName     任务组名
@@ -157,7 +487,7 @@ public class ScheduledUtils {
     public void removeJob(String jobName, String jobGroupName,
                           String triggerName, String triggerGroupName) throws com.chq.qft.inspect.exception.SchedulerException {
         try {
-            Scheduler sched = schedulerFactory.getScheduler();
+            Scheduler sched = scheduleManager.getScheduler();
             TriggerKey triggerKey = TriggerKey.triggerKey(triggerName, triggerGroupName);
             sched.pauseTrigger(triggerKey);// 停止触发器
             sched.unscheduleJob(triggerKey);// 移除触发器
@@ -169,25 +499,22 @@ public class ScheduledUtils {
 
 
     /**
-     * @Description:启动所有定时任务 public  void startJobs() {
-    try {
-    Scheduler sched = schedulerFactory.getScheduler();
-    sched.start();
-    } catch (Exception e) {
-    throw new RuntimeException(e);
-    }
-    }
+     * @Description:启动所有定时任务
      */
-    /**
-     * @Description:关闭所有定时任务 public  void shutdownJobs() {
-    try {
-    Scheduler sched = schedulerFactory.getScheduler();
-    if (!sched.isShutdown()) {
-    sched.shutdown();
-    }
-    } catch (Exception e) {
-    throw new RuntimeException(e);
-    }
+    public void startJobs() throws com.chq.qft.inspect.exception.SchedulerException {
+        try {
+            scheduleManager.start();
+        } catch (Exception e) {
+            throw new com.chq.qft.inspect.exception.SchedulerException("startJobs  error :" + e.getMessage(), e);
+        }
     }
+
+    /**
+     * @param timeoutMillis 等待正在执行的任务的最长时间（毫秒）
+     * @return 正在执行的任务是否在超时之前全部完成
+     * @Description:关闭所有定时任务，先暂停触发，等待正在执行的任务完成之后关闭调度器和线程池
      */
+    public boolean shutdownJobs(long timeoutMillis) {
+        return scheduleManager.shutdownGracefully(timeoutMillis);
+    }
 }
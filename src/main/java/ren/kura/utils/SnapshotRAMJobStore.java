@@ -0,0 +1,443 @@
+package ren.kura.utils;
+
+import org.quartz.Calendar;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 14:00
+ * @Description: 任务和触发器保存在内存中的 RAMJobStore，定时把全部的任务和触发器写入本地的快照文件
+ * 添加、修改、删除任务和触发器触发都只修改内存，不访问数据库；只有发生过修改时才写快照，写快照在后台线程中进行
+ * 创建调度器时从最近的快照恢复，停止时再写一次快照；两次快照之间的修改在进程异常退出时会丢失
+ * 在 quartz.properties 中配置：
+ * org.quartz.jobStore.class: ren.kura.utils.SnapshotRAMJobStore
+ * org.quartz.jobStore.snapshotFile: /data/quartz/snapshot.bin
+ * org.quartz.jobStore.snapshotIntervalMillis: 5000
+ */
+public class SnapshotRAMJobStore extends RAMJobStore {
+    //日志对象
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotRAMJobStore.class);
+
+    private String snapshotFile;
+
+    private long snapshotIntervalMillis = 5000L;
+
+    private String instanceName = "QuartzScheduler";
+
+    private ClassLoadHelper loadHelper;
+
+    private ScheduledExecutorService snapshotExecutor;
+
+    /**
+     * 上次快照之后是否有修改
+     */
+    private volatile boolean dirty = false;
+
+    private volatile long lastSnapshotTime = 0;
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler) {
+        super.initialize(loadHelper, signaler);
+        this.loadHelper = loadHelper;
+        if (snapshotFile == null || snapshotFile.trim().isEmpty()) {
+            logger.warn("snapshotFile is not configured, jobs are only kept in memory");
+            return;
+        }
+        restore();
+        dirty = false;
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, instanceName + "_Snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        snapshotExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                if (dirty) {
+                    snapshotNow();
+                }
+            }
+        }, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdownNow();
+            try {
+                snapshotExecutor.awaitTermination(snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            snapshotNow();
+        }
+        super.shutdown();
+    }
+
+    /**
+     * 立刻写一次快照
+     *
+     * @return 是否写入成功
+     */
+    public synchronized boolean snapshotNow() {
+        if (snapshotFile == null) {
+            return false;
+        }
+        dirty = false;
+        Snapshot snapshot = capture();
+        File file = new File(snapshotFile);
+        File tmp = new File(snapshotFile + ".tmp");
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                throw new IOException("can not create " + dir);
+            }
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath()), 64 * 1024))) {
+                out.writeObject(snapshot);
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            lastSnapshotTime = snapshot.time;
+            return true;
+        } catch (IOException e) {
+            dirty = true;
+            logger.warn("write job store snapshot error: {}", e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * 在 RAMJobStore 的锁中复制所有的任务、触发器和日历，复制出来的快照是一致的
+     */
+    private Snapshot capture() {
+        Snapshot snapshot = new Snapshot();
+        synchronized (lock) {
+            snapshot.time = System.currentTimeMillis();
+            for (String calendarName : getCalendarNames()) {
+                snapshot.calendars.put(calendarName, retrieveCalendar(calendarName));
+            }
+            //getTriggersForJob 每次都遍历所有的触发器，这里按组读取，每个任务和触发器只读取一次
+            for (String group : getJobGroupNames()) {
+                for (JobKey jobKey : getJobKeys(GroupMatcher.jobGroupEquals(group))) {
+                    snapshot.jobs.add(retrieveJob(jobKey));
+                }
+            }
+            for (String group : getTriggerGroupNames()) {
+                for (TriggerKey triggerKey : getTriggerKeys(GroupMatcher.triggerGroupEquals(group))) {
+                    snapshot.triggers.add(retrieveTrigger(triggerKey));
+                    try {
+                        if (getTriggerState(triggerKey) == Trigger.TriggerState.PAUSED) {
+                            snapshot.pausedTriggers.add(triggerKey);
+                        }
+                    } catch (JobPersistenceException ignore) {
+                    }
+                }
+            }
+            snapshot.pausedTriggerGroups.addAll(pausedTriggerGroups);
+            snapshot.pausedJobGroups.addAll(pausedJobGroups);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 从快照文件恢复，文件不存在或者读取失败时从空的状态开始
+     */
+    private void restore() {
+        File file = new File(snapshotFile);
+        if (!file.isFile()) {
+            return;
+        }
+        Snapshot snapshot;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 64 * 1024);
+             ObjectInputStream objectIn = new LoadHelperObjectInputStream(in, loadHelper.getClassLoader())) {
+            snapshot = (Snapshot) objectIn.readObject();
+        } catch (Exception e) {
+            logger.warn("read job store snapshot {} error, start empty: {}", file, e.toString());
+            return;
+        }
+        try {
+            synchronized (lock) {
+                pausedTriggerGroups.addAll(snapshot.pausedTriggerGroups);
+                pausedJobGroups.addAll(snapshot.pausedJobGroups);
+                for (Map.Entry<String, Calendar> entry : snapshot.calendars.entrySet()) {
+                    storeCalendar(entry.getKey(), entry.getValue(), true, false);
+                }
+                for (JobDetail job : snapshot.jobs) {
+                    storeJob(job, true);
+                }
+                for (OperableTrigger trigger : snapshot.triggers) {
+                    storeTrigger(trigger, true);
+                }
+                for (TriggerKey triggerKey : snapshot.pausedTriggers) {
+                    pauseTrigger(triggerKey);
+                }
+            }
+            lastSnapshotTime = snapshot.time;
+            logger.info("restored {} jobs and {} triggers from snapshot {} taken at {}",
+                    snapshot.jobs.size(), snapshot.triggers.size(), file, new Date(snapshot.time));
+        } catch (JobPersistenceException e) {
+            logger.warn("restore job store snapshot {} error: {}", file, e.toString());
+        }
+    }
+
+    private void changed() {
+        dirty = true;
+    }
+
+    /**
+     * @return 最近一次写入或者恢复的快照的时间，没有时为0
+     */
+    public long getLastSnapshotTime() {
+        return lastSnapshotTime;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        super.setInstanceName(schedName);
+        this.instanceName = schedName;
+    }
+
+    @Override
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        super.clearAllSchedulingData();
+        changed();
+    }
+
+    @Override
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        super.storeJobAndTrigger(newJob, newTrigger);
+        changed();
+    }
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws ObjectAlreadyExistsException {
+        super.storeJob(newJob, replaceExisting);
+        changed();
+    }
+
+    @Override
+    public boolean removeJob(JobKey jobKey) {
+        boolean removed = super.removeJob(jobKey);
+        changed();
+        return removed;
+    }
+
+    @Override
+    public boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+        boolean removed = super.removeJobs(jobKeys);
+        changed();
+        return removed;
+    }
+
+    @Override
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        boolean removed = super.removeTriggers(triggerKeys);
+        changed();
+        return removed;
+    }
+
+    @Override
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace) throws JobPersistenceException {
+        super.storeJobsAndTriggers(triggersAndJobs, replace);
+        changed();
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        super.storeTrigger(newTrigger, replaceExisting);
+        changed();
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        boolean removed = super.removeTrigger(triggerKey);
+        changed();
+        return removed;
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        boolean replaced = super.replaceTrigger(triggerKey, newTrigger);
+        changed();
+        return replaced;
+    }
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers) throws ObjectAlreadyExistsException {
+        super.storeCalendar(name, calendar, replaceExisting, updateTriggers);
+        changed();
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        boolean removed = super.removeCalendar(calName);
+        changed();
+        return removed;
+    }
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) {
+        super.pauseTrigger(triggerKey);
+        changed();
+    }
+
+    @Override
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+        List<String> groups = super.pauseTriggers(matcher);
+        changed();
+        return groups;
+    }
+
+    @Override
+    public void pauseJob(JobKey jobKey) {
+        super.pauseJob(jobKey);
+        changed();
+    }
+
+    @Override
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        List<String> groups = super.pauseJobs(matcher);
+        changed();
+        return groups;
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) {
+        super.resumeTrigger(triggerKey);
+        changed();
+    }
+
+    @Override
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        List<String> groups = super.resumeTriggers(matcher);
+        changed();
+        return groups;
+    }
+
+    @Override
+    public void resumeJob(JobKey jobKey) {
+        super.resumeJob(jobKey);
+        changed();
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        Collection<String> groups = super.resumeJobs(matcher);
+        changed();
+        return groups;
+    }
+
+    @Override
+    public void pauseAll() {
+        super.pauseAll();
+        changed();
+    }
+
+    @Override
+    public void resumeAll() {
+        super.resumeAll();
+        changed();
+    }
+
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+        List<TriggerFiredResult> results = super.triggersFired(firedTriggers);
+        changed();
+        return results;
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail, Trigger.CompletedExecutionInstruction triggerInstCode) {
+        super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+        changed();
+    }
+
+    /**
+     * 快照文件的内容
+     */
+    private static class Snapshot implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private long time;
+        private final Map<String, Calendar> calendars = new HashMap<>();
+        private final List<JobDetail> jobs = new ArrayList<>();
+        private final List<OperableTrigger> triggers = new ArrayList<>();
+        private final List<TriggerKey> pausedTriggers = new ArrayList<>();
+        private final Set<String> pausedTriggerGroups = new HashSet<>();
+        private final Set<String> pausedJobGroups = new HashSet<>();
+    }
+
+    /**
+     * 使用调度器的 ClassLoadHelper 加载任务类
+     */
+    private static class LoadHelperObjectInputStream extends ObjectInputStream {
+        private final ClassLoader classLoader;
+
+        LoadHelperObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, classLoader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
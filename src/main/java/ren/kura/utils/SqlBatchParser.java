@@ -0,0 +1,84 @@
+package ren.kura.utils;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @ClassName: SqlBatchParser
+ * @Descripton: 使用 fork/join 并行解析一批sql语句，按字符数拆分任务，空闲的线程会窃取其他线程的任务
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+final class SqlBatchParser {
+
+    /**
+     * 字符数少于这个值的任务不再拆分
+     */
+    private static final int SPLIT_CHARS = 16 * 1024;
+
+    private SqlBatchParser() {
+    }
+
+    /**
+     * 所有批量解析共用的线程池，第一次使用时才创建，线程数量为cpu核数
+     */
+    private static class PoolHolder {
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    static SqlBatchResult parse(List<String> sqls, SqlHandlerChain chain) {
+        return parse(sqls.toArray(new String[sqls.size()]), chain, PoolHolder.POOL);
+    }
+
+    static SqlBatchResult parse(String[] sqls, SqlHandlerChain chain, ForkJoinPool pool) {
+        ParsedSql[] results = new ParsedSql[sqls.length];
+        long[] latencyNanos = new long[sqls.length];
+        long start = System.nanoTime();
+        if (sqls.length > 0) {
+            pool.invoke(new ParseAction(sqls, chain, results, latencyNanos, 0, sqls.length));
+        }
+        return new SqlBatchResult(results, latencyNanos, System.nanoTime() - start);
+    }
+
+    private static class ParseAction extends RecursiveAction {
+        private final String[] sqls;
+        private final SqlHandlerChain chain;
+        private final ParsedSql[] results;
+        private final long[] latencyNanos;
+        private final int from;
+        private final int to;
+
+        ParseAction(String[] sqls, SqlHandlerChain chain, ParsedSql[] results, long[] latencyNanos, int from, int to) {
+            this.sqls = sqls;
+            this.chain = chain;
+            this.results = results;
+            this.latencyNanos = latencyNanos;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && chars() > SPLIT_CHARS) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseAction(sqls, chain, results, latencyNanos, from, middle),
+                        new ParseAction(sqls, chain, results, latencyNanos, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                long start = System.nanoTime();
+                results[i] = SqlParserUtil.parseSql(sqls[i], chain);
+                latencyNanos[i] = System.nanoTime() - start;
+            }
+        }
+
+        private long chars() {
+            long chars = 0;
+            for (int i = from; i < to && chars <= SPLIT_CHARS; i++) {
+                chars += sqls[i].length();
+            }
+            return chars;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ren.kura.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @ClassName: SqlBatchResult
+ * @Descripton: 批量解析的结果，解析结果的顺序和传入的语句顺序一致，同时记录总耗时和每条语句的解析耗时
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public class SqlBatchResult {
+
+    private final List<ParsedSql> results;
+
+    private final long[] latencyNanos;
+
+    private final long elapsedNanos;
+
+    /**
+     * 排序之后的耗时，计算百分位时才生成
+     */
+    private volatile long[] sortedLatencyNanos;
+
+    SqlBatchResult(ParsedSql[] results, long[] latencyNanos, long elapsedNanos) {
+        this.results = Collections.unmodifiableList(Arrays.asList(results));
+        this.latencyNanos = latencyNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return 解析结果，解析异常的语句对应的结果为null
+     */
+    public List<ParsedSql> getResults() {
+        return results;
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * @return 整批语句从开始到全部解析完成的耗时（纳秒）
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return 每秒解析的语句数量
+     */
+    public double getStatementsPerSecond() {
+        return elapsedNanos == 0 ? 0 : results.size() * 1000000000d / elapsedNanos;
+    }
+
+    /**
+     * @param index 语句的下标
+     * @return 这条语句的解析耗时（纳秒）
+     */
+    public long getLatencyNanos(int index) {
+        return latencyNanos[index];
+    }
+
+    public double getAverageLatencyNanos() {
+        if (latencyNanos.length == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (long latency : latencyNanos) {
+            total += latency;
+        }
+        return (double) total / latencyNanos.length;
+    }
+
+    public long getMaxLatencyNanos() {
+        return getLatencyPercentileNanos(100);
+    }
+
+    /**
+     * @param percentile 百分位，比如 50、99
+     * @return 对应百分位的解析耗时（纳秒）
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        if (latencyNanos.length == 0) {
+            return 0;
+        }
+        long[] sorted = sortedLatencyNanos;
+        if (sorted == null) {
+            sorted = latencyNanos.clone();
+            Arrays.sort(sorted);
+            sortedLatencyNanos = sorted;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.min(Math.max(index, 0), sorted.length - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "SqlBatchResult{statements=" + results.size()
+                + ", elapsedMillis=" + elapsedNanos / 1000000
+                + ", statementsPerSecond=" + (long) getStatementsPerSecond()
+                + ", avgLatencyMicros=" + (long) getAverageLatencyNanos() / 1000
+                + ", p99LatencyMicros=" + getLatencyPercentileNanos(99) / 1000
+                + ", maxLatencyMicros=" + getMaxLatencyNanos() / 1000 + "}";
+    }
+}
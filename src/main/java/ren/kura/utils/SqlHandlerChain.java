@@ -0,0 +1,313 @@
+package ren.kura.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ClassName: SqlHandlerChain
+ * @Descripton: 编译好的sql处理链，创建之后不能修改，可以被多个线程共享
+ * 处理器按照子句在sql中出现的顺序排列，每个处理器只检查当前位置的关键字，是自己的关键字就解析出子句，否则子句为空
+ * 新增处理器（LIMIT、UNION、WITH 等）会返回新的处理链，原来的处理链不受影响；子查询使用同一个处理链解析
+ * 每次解析只创建一个记录当前位置和子句位置的 Cursor，解析结果为 ParsedSql
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public final class SqlHandlerChain {
+
+    private static final SqlHandlerChain DEFAULTS = new SqlHandlerChain(new SqlHandler[]{
+            new KeywordSqlHandler(SqlParserUtil.SqlChainNameEnum.SELECT.toString(), EnumSet.of(SqlKeyword.SELECT)),
+            new KeywordSqlHandler(SqlParserUtil.SqlChainNameEnum.FROM.toString(), EnumSet.of(SqlKeyword.FROM)),
+            new KeywordSqlHandler(SqlParserUtil.SqlChainNameEnum.JOIN.toString(), EnumSet.of(SqlKeyword.JOIN)),
+            new KeywordSqlHandler(SqlParserUtil.SqlChainNameEnum.WHERE.toString(), EnumSet.of(SqlKeyword.WHERE)),
+            new KeywordSqlHandler(SqlParserUtil.SqlChainNameEnum.GROUP.toString(), EnumSet.of(SqlKeyword.GROUP_BY)),
+            new KeywordSqlHandler(SqlParserUtil.SqlChainNameEnum.HAVING.toString(), EnumSet.of(SqlKeyword.HAVING)),
+            new KeywordSqlHandler(SqlParserUtil.SqlChainNameEnum.ORDER.toString(), EnumSet.of(SqlKeyword.ORDER_BY))
+    });
+
+    private final SqlHandler[] handles;
+
+    /**
+     * 所有处理器用到的关键字，词法扫描只记录这些关键字
+     */
+    private final EnumSet<SqlKeyword> keywords;
+
+    private final List<String> chainNames;
+
+    private final Map<String, Integer> indexByName;
+
+    /**
+     * SqlChainNameEnum 的序号对应的处理器下标，处理链中没有的为-1
+     */
+    private final int[] indexByEnum;
+
+    private SqlHandlerChain(SqlHandler[] handles) {
+        this.handles = handles;
+        this.keywords = EnumSet.noneOf(SqlKeyword.class);
+        List<String> names = new ArrayList<>(handles.length);
+        this.indexByName = new HashMap<>(handles.length * 2);
+        for (int i = 0; i < handles.length; i++) {
+            keywords.addAll(handles[i].getKeywords());
+            names.add(handles[i].getChainName());
+            indexByName.put(handles[i].getChainName(), i);
+        }
+        this.chainNames = Collections.unmodifiableList(names);
+        SqlParserUtil.SqlChainNameEnum[] values = SqlParserUtil.SqlChainNameEnum.values();
+        this.indexByEnum = new int[values.length];
+        for (SqlParserUtil.SqlChainNameEnum value : values) {
+            indexByEnum[value.ordinal()] = indexOf(value.toString());
+        }
+    }
+
+    /**
+     * @return 默认的处理链：SELECT、FROM、JOIN、WHERE、GROUP、HAVING、ORDER
+     */
+    public static SqlHandlerChain defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * 在处理链的最后增加一个处理器
+     *
+     * @param chainName 处理器名称，也是解析结果的key
+     * @param keyword   子句开始的关键字，连续出现的这些关键字属于同一个子句
+     * @param rest      其他的关键字
+     * @return 新的处理链
+     */
+    public SqlHandlerChain append(String chainName, SqlKeyword keyword, SqlKeyword... rest) {
+        return insert(handles.length, chainName, keyword, rest);
+    }
+
+    /**
+     * 在名称为 existingChainName 的处理器之前增加一个处理器，比如在SELECT之前增加WITH
+     *
+     * @param existingChainName 已经存在的处理器名称
+     * @param chainName         处理器名称，也是解析结果的key
+     * @param keyword           子句开始的关键字，连续出现的这些关键字属于同一个子句
+     * @param rest              其他的关键字
+     * @return 新的处理链
+     */
+    public SqlHandlerChain insertBefore(String existingChainName, String chainName, SqlKeyword keyword, SqlKeyword... rest) {
+        int index = chainNames.indexOf(existingChainName);
+        if (index < 0) {
+            throw new IllegalArgumentException("no handler named " + existingChainName);
+        }
+        return insert(index, chainName, keyword, rest);
+    }
+
+    private SqlHandlerChain insert(int index, String chainName, SqlKeyword keyword, SqlKeyword... rest) {
+        if (chainName == null || chainNames.contains(chainName)) {
+            throw new IllegalArgumentException("duplicate handler name " + chainName);
+        }
+        SqlHandler[] arr2 = new SqlHandler[handles.length + 1];
+        System.arraycopy(handles, 0, arr2, 0, index);
+        arr2[index] = new KeywordSqlHandler(chainName, EnumSet.of(keyword, rest));
+        System.arraycopy(handles, index, arr2, index + 1, handles.length - index);
+        return new SqlHandlerChain(arr2);
+    }
+
+    /**
+     * @return 按顺序排列的处理器名称
+     */
+    public List<String> getChainNames() {
+        return chainNames;
+    }
+
+    /**
+     * @return 处理器的下标，没有这个处理器时返回-1
+     */
+    public int indexOf(String chainName) {
+        Integer index = indexByName.get(chainName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return 处理器的下标，没有这个处理器时返回-1
+     */
+    public int indexOf(SqlParserUtil.SqlChainNameEnum chainName) {
+        return indexByEnum[chainName.ordinal()];
+    }
+
+    public int size() {
+        return handles.length;
+    }
+
+    EnumSet<SqlKeyword> getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * 解析sql语句，只记录每个子句在语句中的位置，不复制子句
+     * 子查询使用同一个处理链解析，作为 ParsedSql 的子节点
+     *
+     * @param sql sql语句
+     * @return 解析结果
+     */
+    ParsedSql parse(CharSequence sql) {
+        return parse(SqlLexer.tokenize(sql, keywords), null);
+    }
+
+    /**
+     * 解析sql语句，同时记录词法扫描和每个处理器的耗时
+     *
+     * @param sql     sql语句
+     * @param metrics 统计接口
+     * @return 解析结果
+     */
+    ParsedSql parse(CharSequence sql, SqlParseMetrics metrics) {
+        long start = System.nanoTime();
+        SqlTokens tokens = SqlLexer.tokenize(sql, keywords);
+        metrics.onLexed(System.nanoTime() - start);
+        return parse(tokens, metrics);
+    }
+
+    private ParsedSql parse(SqlTokens tokens, SqlParseMetrics metrics) {
+        List<ParsedSql> subQueries;
+        if (tokens.getSubQueries().isEmpty()) {
+            subQueries = Collections.emptyList();
+        } else {
+            subQueries = new ArrayList<>(tokens.getSubQueries().size());
+            for (SqlTokens subQuery : tokens.getSubQueries()) {
+                subQueries.add(parse(subQuery, metrics));
+            }
+            subQueries = Collections.unmodifiableList(subQueries);
+        }
+        Cursor cursor = metrics == null ? new Cursor() : new TimedCursor(metrics);
+        cursor.doFilter(tokens, 0);
+        return new ParsedSql(this, tokens.getSql(), tokens.getFrom(), tokens.getTo(), cursor.starts, cursor.ends, subQueries);
+    }
+
+    interface SqlChain {
+        /**
+         * 从第tokenIndex个关键字开始，交给下一个处理器解析
+         *
+         * @param tokens     词法扫描的结果
+         * @param tokenIndex 下一个处理器开始查找的关键字下标
+         */
+        void doFilter(SqlTokens tokens, int tokenIndex);
+
+        /**
+         * 记录当前处理器解析出来的子句的位置，结果只保存在本次调用的处理链中
+         *
+         * @param start 子句在语句中的起始位置
+         * @param end   子句在语句中的结束位置
+         */
+        void putParsedSql(int start, int end);
+    }
+
+    interface SqlHandler {
+        /**
+         * 解析当前传入的sql语句，返回处理后的结果
+         *
+         * @param tokens     词法扫描的结果
+         * @param tokenIndex 当前位置的关键字下标
+         * @param chain      下一步的处理链
+         */
+        void handleSql(SqlTokens tokens, int tokenIndex, SqlChain chain);
+
+        String getChainName();
+
+        EnumSet<SqlKeyword> getKeywords();
+    }
+
+    /**
+     * 按关键字划分子句的处理器：子句从自己的关键字开始，到下一个不属于自己的关键字结束
+     * 连续的同类关键字（多个JOIN）属于同一个子句
+     */
+    private static class KeywordSqlHandler implements SqlHandler {
+        private final String chainName;
+        private final EnumSet<SqlKeyword> keywords;
+
+        KeywordSqlHandler(String chainName, EnumSet<SqlKeyword> keywords) {
+            this.chainName = chainName;
+            this.keywords = keywords;
+        }
+
+        @Override
+        public void handleSql(SqlTokens tokens, int tokenIndex, SqlChain chain) {
+            if (tokenIndex >= tokens.size() || !keywords.contains(tokens.keyword(tokenIndex))) {
+                chain.doFilter(tokens, tokenIndex);
+                return;
+            }
+            int next = tokenIndex + 1;
+            if (tokens.keyword(tokenIndex).isUntilEnd()) {
+                next = tokens.size();
+            }
+            while (next < tokens.size() && keywords.contains(tokens.keyword(next))) {
+                next++;
+            }
+            chain.putParsedSql(tokens.start(tokenIndex), tokens.end(next));
+            chain.doFilter(tokens, next);
+        }
+
+        @Override
+        public String getChainName() {
+            return chainName;
+        }
+
+        @Override
+        public EnumSet<SqlKeyword> getKeywords() {
+            return keywords;
+        }
+    }
+
+    /**
+     * 每次解析时创建，只保存当前的位置和解析的结果
+     */
+    private class Cursor implements SqlChain {
+        int pos = 0;//维持过滤器链中的当前位置
+        private final int[] starts = new int[handles.length];//每个处理器解析出来的子句的起始位置，没有的为-1
+        private final int[] ends = new int[handles.length];
+
+        Cursor() {
+            Arrays.fill(starts, -1);
+            Arrays.fill(ends, -1);
+        }
+
+        @Override
+        public void doFilter(SqlTokens tokens, int tokenIndex) {
+            if (pos < handles.length) {
+                SqlHandler sqlHandler = handles[pos];
+                pos++;
+                sqlHandler.handleSql(tokens, tokenIndex, this);
+            }
+        }
+
+        @Override
+        public void putParsedSql(int start, int end) {
+            starts[pos - 1] = start;
+            ends[pos - 1] = end;
+        }
+    }
+
+    /**
+     * 开启统计时使用，每次进入下一个处理器时记录上一个处理器的耗时
+     */
+    private final class TimedCursor extends Cursor {
+        private final SqlParseMetrics metrics;
+        private long last = System.nanoTime();
+
+        TimedCursor(SqlParseMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void doFilter(SqlTokens tokens, int tokenIndex) {
+            long now = System.nanoTime();
+            if (pos > 0) {
+                metrics.onHandled(handles[pos - 1].getChainName(), now - last);
+            }
+            last = now;
+            super.doFilter(tokens, tokenIndex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SqlHandlerChain" + Arrays.toString(chainNames.toArray());
+    }
+}
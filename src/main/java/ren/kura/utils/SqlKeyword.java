@@ -0,0 +1,45 @@
+package ren.kura.utils;
+
+/**
+ * @ClassName: SqlKeyword
+ * @Descripton: SqlLexer 能够识别的子句关键字，多个单词组成的关键字（GROUP BY、LEFT OUTER JOIN 等）作为一个关键字
+ * 注册新的处理器时，用这些关键字指定子句的开始
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public enum SqlKeyword {
+    WITH,
+    SELECT,
+    FROM,
+    /**
+     * JOIN、LEFT [OUTER] JOIN、RIGHT [OUTER] JOIN、FULL [OUTER] JOIN、INNER JOIN、CROSS JOIN
+     */
+    JOIN,
+    WHERE,
+    GROUP_BY,
+    HAVING,
+    ORDER_BY,
+    LIMIT,
+    OFFSET,
+    /**
+     * UNION [ALL]，之后的语句都属于这个子句
+     */
+    UNION(true);
+
+    private final boolean untilEnd;
+
+    SqlKeyword() {
+        this(false);
+    }
+
+    SqlKeyword(boolean untilEnd) {
+        this.untilEnd = untilEnd;
+    }
+
+    /**
+     * @return 子句是否一直到语句结束
+     */
+    public boolean isUntilEnd() {
+        return untilEnd;
+    }
+}
@@ -0,0 +1,334 @@
+package ren.kura.utils;
+
+import java.util.EnumSet;
+
+/**
+ * @ClassName: SqlLexer
+ * @Descripton: sql语句的词法扫描，从头到尾只扫描一遍，记录每一层语句的子句关键字的位置
+ * 括号里以 SELECT 或 WITH 开始的是子查询，子查询的关键字记录在子查询自己的 SqlTokens 中，形成一棵树
+ * 只记录处理链用到的关键字，其他的关键字作为普通的单词
+ * 字符串、带引号的标识符、注释和函数等普通括号里的内容不会被当成子句的关键字；关键字不区分大小写
+ * 处理链没有 UNION 处理器时，遇到 UNION、INTERSECT、EXCEPT、MINUS 之后这一层语句不再记录关键字，后面的语句都属于前一个子句
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+final class SqlLexer {
+
+    private SqlLexer() {
+    }
+
+    /**
+     * @return 最外层语句的扫描结果，子查询的扫描结果通过 SqlTokens.getSubQueries 获取
+     */
+    static SqlTokens tokenize(CharSequence sql, EnumSet<SqlKeyword> keywords) {
+        int length = sql.length();
+        SqlTokens root = new SqlTokens(sql, 0, 0, null);
+        //当前所在的语句，遇到子查询的右括号时回到上一层
+        SqlTokens current = root;
+        int depth = 0;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(sql, i + 1, c);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                i = skipLineComment(sql, i + 2);
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                i = skipBlockComment(sql, i + 2);
+            } else if (c == '(') {
+                depth++;
+                i++;
+                int word = nextWord(sql, i);
+                if (word >= 0) {
+                    int end = wordEnd(sql, word);
+                    if (matches(sql, word, end, "SELECT") || matches(sql, word, end, "WITH")) {
+                        current = new SqlTokens(sql, word, depth, current);
+                    }
+                }
+            } else if (c == ')') {
+                if (depth > 0) {
+                    if (current != root && depth == current.getDepth()) {
+                        current.close(i);
+                        current = current.getParent();
+                    }
+                    depth--;
+                }
+                i++;
+            } else if (isWordStart(c)) {
+                int end = wordEnd(sql, i);
+                i = depth == current.getDepth() && !isQualified(sql, i) ? readKeyword(sql, i, end, keywords, current) : end;
+            } else {
+                i++;
+            }
+        }
+        //没有闭合的子查询到语句结束为止
+        while (current != root) {
+            current.close(length);
+            current = current.getParent();
+        }
+        root.close(length);
+        return root;
+    }
+
+    /**
+     * 生成缓存用的规范化语句：去掉注释，连续的空白合并为一个空格，逗号、括号和比较符两边的空白去掉
+     *
+     * @param sql             原始语句
+     * @param replaceLiterals 是否把字符串和数字常量替换为 ?
+     * @return 规范化之后的语句
+     */
+    static String normalize(CharSequence sql, boolean replaceLiterals) {
+        return normalize(sql, replaceLiterals, null);
+    }
+
+    /**
+     * 生成规范化语句，同时记录规范化语句中每个字符在原语句中的位置
+     * 关键字原样保留，所以规范化语句中子句的起止位置可以对应回原语句
+     *
+     * @param positions 为null时不记录；否则长度至少为 sql.length() + 1，规范化语句的长度位置记录为原语句的长度
+     */
+    static String normalize(CharSequence sql, boolean replaceLiterals, int[] positions) {
+        int length = sql.length();
+        StringBuilder sb = new StringBuilder(length);
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int next;
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                i++;
+                continue;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                pendingSpace = sb.length() > 0;
+                i = skipLineComment(sql, i + 2);
+                continue;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                pendingSpace = sb.length() > 0;
+                i = skipBlockComment(sql, i + 2);
+                continue;
+            }
+            if (pendingSpace) {
+                if (!isTight(c) && !isTight(sb.charAt(sb.length() - 1))) {
+                    mark(positions, sb.length(), i, 1);
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                next = skipQuoted(sql, i + 1, c);
+                if (replaceLiterals && c == '\'') {
+                    mark(positions, sb.length(), i, 1);
+                    sb.append('?');
+                } else {
+                    mark(positions, sb.length(), i, next - i);
+                    sb.append(sql, i, next);
+                }
+            } else if (isWordStart(c)) {
+                next = wordEnd(sql, i);
+                mark(positions, sb.length(), i, next - i);
+                sb.append(sql, i, next);
+            } else if (Character.isDigit(c) && (i == 0 || !isWordPart(sql.charAt(i - 1)))) {
+                next = i + 1;
+                while (next < length && (isWordPart(sql.charAt(next)) || sql.charAt(next) == '.')) {
+                    next++;
+                }
+                if (replaceLiterals) {
+                    mark(positions, sb.length(), i, 1);
+                    sb.append('?');
+                } else {
+                    mark(positions, sb.length(), i, next - i);
+                    sb.append(sql, i, next);
+                }
+            } else {
+                next = i + 1;
+                mark(positions, sb.length(), i, 1);
+                sb.append(c);
+            }
+            i = next;
+        }
+        mark(positions, sb.length(), length, 1);
+        return sb.toString();
+    }
+
+    /**
+     * 规范化语句从 at 开始的 count 个字符对应原语句从 source 开始的字符；替换为 ? 的常量和合并的空白只对应第一个字符
+     */
+    private static void mark(int[] positions, int at, int source, int count) {
+        if (positions == null) {
+            return;
+        }
+        for (int k = 0; k < count; k++) {
+            positions[at + k] = source + k;
+        }
+    }
+
+    /**
+     * 识别从start开始的单词是否是子句的关键字，是的话记录下来
+     *
+     * @return 继续扫描的位置
+     */
+    private static int readKeyword(CharSequence sql, int start, int end, EnumSet<SqlKeyword> keywords, SqlTokens tokens) {
+        if (tokens.isSealed()) {
+            return end;
+        }
+        SqlKeyword keyword = null;
+        int next = end;
+        if (matches(sql, start, end, "INTERSECT") || matches(sql, start, end, "EXCEPT")
+                || matches(sql, start, end, "MINUS")
+                || (matches(sql, start, end, "UNION") && !keywords.contains(SqlKeyword.UNION))) {
+            //没有处理器的集合运算，后面的语句不能按子句拆开，否则会被丢掉
+            tokens.seal();
+            return end;
+        } else if (matches(sql, start, end, "SELECT")) {
+            keyword = SqlKeyword.SELECT;
+        } else if (matches(sql, start, end, "FROM")) {
+            keyword = SqlKeyword.FROM;
+        } else if (matches(sql, start, end, "WHERE")) {
+            keyword = SqlKeyword.WHERE;
+        } else if (matches(sql, start, end, "HAVING")) {
+            keyword = SqlKeyword.HAVING;
+        } else if (matches(sql, start, end, "JOIN")) {
+            keyword = SqlKeyword.JOIN;
+        } else if (matches(sql, start, end, "WITH")) {
+            keyword = SqlKeyword.WITH;
+        } else if (matches(sql, start, end, "LIMIT")) {
+            keyword = SqlKeyword.LIMIT;
+        } else if (matches(sql, start, end, "OFFSET")) {
+            keyword = SqlKeyword.OFFSET;
+        } else if (matches(sql, start, end, "UNION")) {
+            keyword = SqlKeyword.UNION;
+        } else if (matches(sql, start, end, "GROUP") || matches(sql, start, end, "ORDER")) {
+            int by = nextWord(sql, end);
+            if (by >= 0 && matches(sql, by, wordEnd(sql, by), "BY")) {
+                keyword = sql.charAt(start) == 'G' || sql.charAt(start) == 'g' ? SqlKeyword.GROUP_BY : SqlKeyword.ORDER_BY;
+                next = by + 2;
+            }
+        } else if (matches(sql, start, end, "LEFT") || matches(sql, start, end, "RIGHT")
+                || matches(sql, start, end, "FULL") || matches(sql, start, end, "INNER")
+                || matches(sql, start, end, "CROSS")) {
+            int join = nextWord(sql, end);
+            if (join >= 0 && matches(sql, join, wordEnd(sql, join), "OUTER")) {
+                join = nextWord(sql, wordEnd(sql, join));
+            }
+            if (join >= 0 && matches(sql, join, wordEnd(sql, join), "JOIN")) {
+                keyword = SqlKeyword.JOIN;
+                next = join + 4;
+            }
+        }
+        if (keyword == null || !keywords.contains(keyword)) {
+            return end;
+        }
+        tokens.add(keyword, start);
+        return next;
+    }
+
+    /**
+     * 两边不需要保留空白的字符，去掉空白不会和相邻的字符组成注释或者转义的引号
+     */
+    private static boolean isTight(char c) {
+        return c == ',' || c == '(' || c == ')' || c == '=' || c == '<' || c == '>';
+    }
+
+    private static boolean isWordStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    /**
+     * T.ORDER、:FROM 这类表名限定的列名或者参数名不是关键字
+     */
+    private static boolean isQualified(CharSequence sql, int start) {
+        if (start == 0) {
+            return false;
+        }
+        char c = sql.charAt(start - 1);
+        return c == '.' || c == ':' || c == '@' || isWordPart(c);
+    }
+
+    private static int wordEnd(CharSequence sql, int start) {
+        int i = start;
+        while (i < sql.length() && isWordPart(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 跳过空白字符和注释，返回下一个单词的起始位置，下一个字符不是单词时返回-1
+     * 和 normalize 把注释当作空白一致，GROUP 和 BY 之间有注释时和规范化之后的 GROUP BY 扫描的结果相同
+     */
+    private static int nextWord(CharSequence sql, int from) {
+        int i = from;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < sql.length() && sql.charAt(i + 1) == '-') {
+                i = skipLineComment(sql, i + 2);
+            } else if (c == '/' && i + 1 < sql.length() && sql.charAt(i + 1) == '*') {
+                i = skipBlockComment(sql, i + 2);
+            } else {
+                break;
+            }
+        }
+        return i < sql.length() && isWordStart(sql.charAt(i)) ? i : -1;
+    }
+
+    /**
+     * 不区分大小写比较单词，keyword 必须是大写的
+     */
+    private static boolean matches(CharSequence sql, int start, int end, String keyword) {
+        if (end - start != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (Character.toUpperCase(sql.charAt(start + i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 跳过引号里的内容，两个连续的引号表示转义
+     *
+     * @return 结束引号之后的位置
+     */
+    private static int skipQuoted(CharSequence sql, int from, char quote) {
+        int i = from;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipLineComment(CharSequence sql, int from) {
+        int i = from;
+        while (i < sql.length() && sql.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipBlockComment(CharSequence sql, int from) {
+        int i = from;
+        while (i + 1 < sql.length()) {
+            if (sql.charAt(i) == '*' && sql.charAt(i + 1) == '/') {
+                return i + 2;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+}
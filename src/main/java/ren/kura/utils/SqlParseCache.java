@@ -0,0 +1,196 @@
+package ren.kura.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName: SqlParseCache
+ * @Descripton: sql解析结果的缓存，按近似的最近最少使用（LRU）淘汰，同时限制缓存的条数和保存的字符总数
+ * 读取不加锁，只记录使用时间；超出上限时轮流取 SAMPLE_SIZE 条，淘汰其中最久没有使用的一条
+ * 缓存的key是规范化之后的sql（去掉注释、合并空白，可以把常量替换为 ?），缓存的是不可修改的 ParsedSql
+ * key 只用来查找：ParsedSql 中是子句在规范化语句中的位置，读取时按 normalize 记录的位置对应关系从调用方的语句中截取子句
+ * 所以开启缓存、命中或者没有命中，返回的子句都和不使用缓存时相同，不会出现 ? 或者被合并的空白
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public class SqlParseCache {
+
+    /**
+     * 每次淘汰时比较的条数
+     */
+    private static final int SAMPLE_SIZE = 8;
+
+    private final int maxEntries;
+
+    private final long maxChars;
+
+    private final boolean replaceLiterals;
+
+    private final ConcurrentHashMap<String, Node> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong retainedChars = new AtomicLong();
+
+    /**
+     * 同一时间只有一个线程取样淘汰，hand 只在加锁时使用
+     */
+    private final Object evictionLock = new Object();
+
+    /**
+     * 上次取样停止的位置，下次从这里继续，每条缓存轮流被比较
+     */
+    private Iterator<Map.Entry<String, Node>> hand;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxEntries      最多缓存的条数
+     * @param maxChars        缓存的key和解析的语句的字符总数上限
+     * @param replaceLiterals 是否把字符串和数字常量替换为 ? 之后再作为key
+     */
+    public SqlParseCache(int maxEntries, long maxChars, boolean replaceLiterals) {
+        if (maxEntries <= 0 || maxChars <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxChars must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+        this.replaceLiterals = replaceLiterals;
+    }
+
+    /**
+     * 生成缓存的key
+     */
+    public String normalize(String sql) {
+        return SqlLexer.normalize(sql, replaceLiterals);
+    }
+
+    /**
+     * 生成缓存的key，同时记录key中每个字符在 sql 中的位置
+     *
+     * @param positions 长度至少为 sql.length() + 1
+     */
+    String normalize(String sql, int[] positions) {
+        return SqlLexer.normalize(sql, replaceLiterals, positions);
+    }
+
+    /**
+     * 查询缓存的解析结果，并记录命中和未命中的次数
+     *
+     * @param key normalize 生成的key
+     * @return 解析结果，没有缓存时返回null
+     */
+    public ParsedSql get(String key) {
+        Node node = entries.get(key);
+        if (node == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        node.lastAccess = System.nanoTime();
+        hitCount.incrementAndGet();
+        return node.parsed;
+    }
+
+    /**
+     * 缓存解析结果，超出条数或者字符数上限时淘汰取样中最久没有使用的结果
+     * 单条结果就超过字符数上限的不缓存
+     *
+     * @param key    normalize 生成的key
+     * @param parsed 解析结果
+     */
+    public void put(String key, ParsedSql parsed) {
+        long chars = weigh(key, parsed);
+        if (chars > maxChars) {
+            return;
+        }
+        Node previous = entries.put(key, new Node(parsed, chars));
+        retainedChars.addAndGet(previous == null ? chars : chars - previous.chars);
+        if (entries.size() > maxEntries || retainedChars.get() > maxChars) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            while (entries.size() > maxEntries || retainedChars.get() > maxChars) {
+                Map.Entry<String, Node> eldest = null;
+                for (int i = 0; i < SAMPLE_SIZE; i++) {
+                    if (hand == null || !hand.hasNext()) {
+                        hand = entries.entrySet().iterator();
+                        if (!hand.hasNext()) {
+                            break;
+                        }
+                    }
+                    Map.Entry<String, Node> entry = hand.next();
+                    if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                        eldest = entry;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                //取样之后被替换的结果不淘汰，重新取样
+                if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                    retainedChars.addAndGet(-eldest.getValue().chars);
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (Map.Entry<String, Node> entry : entries.entrySet()) {
+            if (entries.remove(entry.getKey(), entry.getValue())) {
+                retainedChars.addAndGet(-entry.getValue().chars);
+            }
+        }
+    }
+
+    /**
+     * 解析的语句就是key时只计算一次
+     */
+    private static long weigh(String key, ParsedSql parsed) {
+        return parsed.getSql() == key ? key.length() : key.length() + parsed.getSql().length();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getRetainedChars() {
+        return retainedChars.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public boolean isReplaceLiterals() {
+        return replaceLiterals;
+    }
+
+    private static final class Node {
+        private final ParsedSql parsed;
+
+        private final long chars;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        Node(ParsedSql parsed, long chars) {
+            this.parsed = parsed;
+            this.chars = chars;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ren.kura.utils;
+
+/**
+ * @ClassName: SqlParseCallback
+ * @Descripton: 批量解析sql时，每解析完一条语句回调一次
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public interface SqlParseCallback {
+
+    /**
+     * @param index  语句的序号，从0开始
+     * @param sql    语句
+     * @param parsed 解析结果，解析异常时为null
+     */
+    void onParsed(long index, String sql, ParsedSql parsed);
+}
@@ -0,0 +1,53 @@
+package ren.kura.utils;
+
+/**
+ * @ClassName: SqlParseMetrics
+ * @Descripton: sql解析的统计接口，通过 SqlParserUtil.setParseMetrics 开启，默认关闭
+ * 关闭时解析过程中不计时、不调用任何方法；开启后在解析线程中同步调用，实现需要线程安全并且尽量轻量
+ * 默认的实现为 SqlParseStats，也可以转接到其他的统计系统
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public interface SqlParseMetrics {
+
+    /**
+     * 一条语句词法扫描完成
+     *
+     * @param nanos 扫描耗时（纳秒）
+     */
+    void onLexed(long nanos);
+
+    /**
+     * 一个处理器处理完一层语句，子查询的每一层都会调用一次
+     *
+     * @param chainName 处理器名称
+     * @param nanos     处理耗时（纳秒），不包括后面的处理器
+     */
+    void onHandled(String chainName, long nanos);
+
+    /**
+     * 一条语句解析完成
+     *
+     * @param length 语句的长度
+     * @param nanos  解析耗时（纳秒），包括词法扫描和所有的处理器
+     */
+    void onParsed(int length, long nanos);
+
+    /**
+     * 解析异常
+     *
+     * @param sql 语句
+     * @param e   异常
+     */
+    void onFailed(CharSequence sql, Exception e);
+
+    /**
+     * 开启缓存时，从缓存中读到了解析结果
+     */
+    void onCacheHit();
+
+    /**
+     * 开启缓存时，缓存中没有解析结果
+     */
+    void onCacheMiss();
+}
@@ -0,0 +1,213 @@
+package ren.kura.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @ClassName: SqlParseStats
+ * @Descripton: SqlParseMetrics 的默认实现，只用原子计数器累加，不加锁
+ * 记录每个处理器的次数和耗时、词法扫描耗时、语句长度的直方图（按2的幂分桶）、缓存命中率和解析失败次数
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public class SqlParseStats implements SqlParseMetrics {
+
+    /**
+     * 长度直方图的桶数，第i个桶为长度小于 2^i 并且不小于 2^(i-1) 的语句，最后一个桶包括所有更长的语句
+     */
+    private static final int SIZE_BUCKETS = 24;
+
+    private final AtomicLong parsedCount = new AtomicLong();
+
+    private final AtomicLong parseNanos = new AtomicLong();
+
+    private final AtomicLong maxParseNanos = new AtomicLong();
+
+    private final AtomicLong parsedChars = new AtomicLong();
+
+    private final AtomicLong lexNanos = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong cacheHitCount = new AtomicLong();
+
+    private final AtomicLong cacheMissCount = new AtomicLong();
+
+    private final AtomicLongArray sizeHistogram = new AtomicLongArray(SIZE_BUCKETS);
+
+    private final ConcurrentMap<String, HandlerStats> handlers = new ConcurrentHashMap<>();
+
+    @Override
+    public void onLexed(long nanos) {
+        lexNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void onHandled(String chainName, long nanos) {
+        HandlerStats stats = handlers.get(chainName);
+        if (stats == null) {
+            HandlerStats created = new HandlerStats();
+            stats = handlers.putIfAbsent(chainName, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        stats.count.incrementAndGet();
+        stats.nanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void onParsed(int length, long nanos) {
+        parsedCount.incrementAndGet();
+        parseNanos.addAndGet(nanos);
+        parsedChars.addAndGet(length);
+        sizeHistogram.incrementAndGet(bucketOf(length));
+        long max = maxParseNanos.get();
+        while (nanos > max && !maxParseNanos.compareAndSet(max, nanos)) {
+            max = maxParseNanos.get();
+        }
+    }
+
+    @Override
+    public void onFailed(CharSequence sql, Exception e) {
+        failedCount.incrementAndGet();
+    }
+
+    @Override
+    public void onCacheHit() {
+        cacheHitCount.incrementAndGet();
+    }
+
+    @Override
+    public void onCacheMiss() {
+        cacheMissCount.incrementAndGet();
+    }
+
+    private static int bucketOf(int length) {
+        return Math.min(32 - Integer.numberOfLeadingZeros(length), SIZE_BUCKETS - 1);
+    }
+
+    public long getParsedCount() {
+        return parsedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getParsedChars() {
+        return parsedChars.get();
+    }
+
+    /**
+     * @return 解析的总耗时（纳秒）
+     */
+    public long getParseNanos() {
+        return parseNanos.get();
+    }
+
+    public long getMaxParseNanos() {
+        return maxParseNanos.get();
+    }
+
+    public double getAverageParseNanos() {
+        long count = parsedCount.get();
+        return count == 0 ? 0 : (double) parseNanos.get() / count;
+    }
+
+    /**
+     * @return 词法扫描的总耗时（纳秒）
+     */
+    public long getLexNanos() {
+        return lexNanos.get();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMissCount.get();
+    }
+
+    public double getCacheHitRate() {
+        long hit = cacheHitCount.get();
+        long total = hit + cacheMissCount.get();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * @return 长度直方图，key为桶的长度上限（不包含），最后一个桶的key为 Integer.MAX_VALUE
+     */
+    public Map<Integer, Long> getSizeHistogram() {
+        Map<Integer, Long> histogram = new TreeMap<>();
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            long count = sizeHistogram.get(i);
+            if (count > 0) {
+                histogram.put(i == SIZE_BUCKETS - 1 ? Integer.MAX_VALUE : 1 << i, count);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return 每个处理器的调用次数
+     */
+    public Map<String, Long> getHandlerCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, HandlerStats> entry : handlers.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().count.get());
+        }
+        return counts;
+    }
+
+    /**
+     * @return 每个处理器的总耗时（纳秒）
+     */
+    public Map<String, Long> getHandlerNanos() {
+        Map<String, Long> nanos = new TreeMap<>();
+        for (Map.Entry<String, HandlerStats> entry : handlers.entrySet()) {
+            nanos.put(entry.getKey(), entry.getValue().nanos.get());
+        }
+        return nanos;
+    }
+
+    /**
+     * 清空所有的统计
+     */
+    public void reset() {
+        parsedCount.set(0);
+        parseNanos.set(0);
+        maxParseNanos.set(0);
+        parsedChars.set(0);
+        lexNanos.set(0);
+        failedCount.set(0);
+        cacheHitCount.set(0);
+        cacheMissCount.set(0);
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            sizeHistogram.set(i, 0);
+        }
+        handlers.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlParseStats{parsed=" + getParsedCount()
+                + ", failed=" + getFailedCount()
+                + ", avgNanos=" + String.format("%.0f", getAverageParseNanos())
+                + ", maxNanos=" + getMaxParseNanos()
+                + ", lexNanos=" + getLexNanos()
+                + ", cacheHitRate=" + String.format("%.3f", getCacheHitRate())
+                + ", handlerNanos=" + getHandlerNanos()
+                + ", sizeHistogram=" + getSizeHistogram() + "}";
+    }
+
+    private static final class HandlerStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+    }
+}
@@ -4,12 +4,15 @@ package ren.kura.utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -20,11 +23,22 @@ import java.util.regex.Pattern;
  */
 
 public class SqlParserUtil {
-      private final static Logger logger = LoggerFactory.getLogger(SqlParserUtil.class);
+    private final static Logger logger = LoggerFactory.getLogger(SqlParserUtil.class);
 
-    private static final Map<String, String> SQL_MAP = new ConcurrentHashMap<String, String>(7);
+    /**
+     * 解析结果的缓存，为null时不缓存
+     */
+    private static volatile SqlParseCache parseCache;
 
-    private static final AtomicReference<Thread> atomicReference = new AtomicReference<Thread>();
+    /**
+     * 默认使用的处理链，注册新的处理器时整体替换
+     */
+    private static volatile SqlHandlerChain sqlChain = SqlHandlerChain.defaults();
+
+    /**
+     * 解析的统计，为null时不统计
+     */
+    private static volatile SqlParseMetrics parseMetrics;
 
     public enum  SqlParserEnum {
         /**
@@ -37,7 +51,10 @@ public class SqlParserUtil {
         }
     }
 
-    private enum SqlChainNameEnum {
+    /**
+     * 默认处理链中的处理器名称
+     */
+    public enum SqlChainNameEnum {
         SELECT,
         FROM,
         JOIN,
@@ -47,395 +64,298 @@ public class SqlParserUtil {
         ORDER
     }
 
-    private interface SqlChain {
-        void doFilter(String sql);
+    /**
+     * 换行替换为空格，换行不改变语句的长度，所以在替换之前扫描关键字
+     */
+    private static String replaceAllCarriage(String str) {
+        return str.replace('\n', ' ');
     }
 
-    private interface SqlHandler {
-        /**
-         * 解析当前传入的sql语句，返回处理后的结果
-         *
-         * @param sql   sql语句
-         * @param chain 下一步的处理链
-         */
-        void handleSql(String sql, SqlChain chain);
-
-        String getChainName();
+    private static String pretreatmentSqlToUpperCase(String sql) {
+        //处理sql语句
+        return sql.trim().toUpperCase();
     }
 
-    private interface SqlHandlerContext {
-
-        String getSql();
-
-        SqlChain getChain();
-
-        String getChainName();
-
-        Pattern getPattern();
-
+    /**
+     * 注册一个处理器，增加在当前处理链的最后，比如 registerHandler("LIMIT", SqlKeyword.LIMIT, SqlKeyword.OFFSET)
+     * 注册之后会清空解析结果的缓存
+     *
+     * @param chainName 处理器名称，也是解析结果的key
+     * @param keyword   子句开始的关键字
+     * @param rest      其他的关键字
+     */
+    public static synchronized void registerHandler(String chainName, SqlKeyword keyword, SqlKeyword... rest) {
+        setSqlChain(sqlChain.append(chainName, keyword, rest));
     }
 
-    private static class SqlHandlerContextImpl implements SqlHandlerContext {
-
-        private final String sql;
-        private final String chainName;
-        private final SqlChain chain;
-        private final Pattern pattern;
-
-        public SqlHandlerContextImpl(String sql, SqlChainNameEnum chainName, SqlChain chain, Pattern pattern) {
-            this.sql = sql;
-            this.chainName = chainName.toString();
-            this.chain = chain;
-            this.pattern = pattern;
-        }
-
-        @Override
-        public String getSql() {
-            return sql;
-        }
-
-        @Override
-        public SqlChain getChain() {
-            return chain;
-        }
-
-        @Override
-        public String getChainName() {
-            return chainName;
-        }
+    /**
+     * 注册一个处理器，增加在名称为 existingChainName 的处理器之前，比如 registerHandlerBefore("SELECT", "WITH", SqlKeyword.WITH)
+     * 注册之后会清空解析结果的缓存
+     *
+     * @param existingChainName 已经存在的处理器名称
+     * @param chainName         处理器名称，也是解析结果的key
+     * @param keyword           子句开始的关键字
+     * @param rest              其他的关键字
+     */
+    public static synchronized void registerHandlerBefore(String existingChainName, String chainName, SqlKeyword keyword, SqlKeyword... rest) {
+        setSqlChain(sqlChain.insertBefore(existingChainName, chainName, keyword, rest));
+    }
 
-        @Override
-        public Pattern getPattern() {
-            return pattern;
+    /**
+     * 替换默认使用的处理链，注册之后会清空解析结果的缓存
+     */
+    public static synchronized void setSqlChain(SqlHandlerChain chain) {
+        sqlChain = chain;
+        SqlParseCache cache = parseCache;
+        if (cache != null) {
+            cache.clear();
         }
     }
 
-    private static void resolveSqlAndNextFilter(SqlHandlerContext context) {
-        int[] sub = resolveSql(context.getSql(), context.getPattern());
-        setSqlMap(context.getChainName(), getResolveSql(context.getSql(), sub[0], sub[1]));
-        doNextFilter(context.getSql(), context.getChain(), sub[1]);
+    /**
+     * @return 当前默认使用的处理链
+     */
+    public static SqlHandlerChain getSqlChain() {
+        return sqlChain;
     }
 
-    private static void setSqlMap(String chainName, String resolveSql) {
-        SQL_MAP.put(chainName, resolveSql);
-    }
 
-    private static Map<String, String> getSqlMap() {
-        Map<String, String> map = new HashMap<>();
-        if (!SQL_MAP.isEmpty()) {
-            map.putAll(SQL_MAP);
-        }
-        return map;
+    /**
+     * 按处理链的顺序重新拼接语句，子句直接从原语句追加
+     */
+    public static String getParsedSql(ParsedSql parsed) {
+        return parsed.toSql();
     }
 
-    private static void cleanMap() {
-        if (!SQL_MAP.isEmpty()) {
-            SQL_MAP.clear();
+    public static String getParsedSql(Map<String, String> parsedMap, SqlParserEnum type) {
+        StringBuffer result=new StringBuffer();
+        switch (type) {
+            case SELECT:
+                //按照责任链的顺序输出
+                for (String chainName : sqlChain.getChainNames()) {
+                    result.append(parsedMap.get(chainName)).append(" ");
+                }
+                break;
         }
+        return result.toString();
     }
 
-    private static String getResolveSql(String sql, int start, int end) {
-        return start == 0 && end == 0 ? "" : sql.substring(start, end);
+    /**
+     * 开启解析结果的缓存，已经开启的会替换为新的缓存
+     * 规范化之后的语句（去掉注释、合并空白）只作为缓存的key，返回的子句仍然从传入的语句中截取，和不开启缓存时相同
+     *
+     * @param maxEntries      最多缓存的条数
+     * @param maxChars        缓存保存的字符总数上限
+     * @param replaceLiterals 是否把字符串和数字常量替换为 ? 之后再缓存
+     */
+    public static void enableParseCache(int maxEntries, long maxChars, boolean replaceLiterals) {
+        parseCache = new SqlParseCache(maxEntries, maxChars, replaceLiterals);
     }
 
-    private static int[] resolveSql(String sql, Pattern pattern) {
-        Matcher matcher = pattern.matcher(sql);
-        int start = 0;
-        int end = 0;
-        if (matcher.find()) {
-            start = matcher.start(1);
-            end = matcher.end(2);
-        }
-        return new int[]{start, end};
+    /**
+     * 关闭解析结果的缓存
+     */
+    public static void disableParseCache() {
+        parseCache = null;
     }
 
-    private static void doNextFilter(String sql, SqlChain chain, int end) {
-        if (chain != null) {
-            chain.doFilter(sql.substring(end));
-        }
+    /**
+     * @return 当前使用的缓存，可以查看命中、未命中和淘汰的次数；没有开启时返回null
+     */
+    public static SqlParseCache getParseCache() {
+        return parseCache;
     }
 
-    private static class SelectHandler implements SqlHandler {
-
-        private final Pattern SELECT_PATTERN = Pattern.compile("(SELECT)(.+?)(FROM)");
-
-        @Override
-        public void handleSql(String sql, SqlChain chain) {
-            resolveSqlAndNextFilter(new SqlHandlerContextImpl(sql, SqlChainNameEnum.SELECT, chain, SELECT_PATTERN));
-        }
-
-        @Override
-        public String getChainName() {
-            return SqlChainNameEnum.SELECT.toString();
-        }
+    /**
+     * 开启解析的统计，比如 setParseMetrics(new SqlParseStats())；传入null关闭
+     * 关闭时解析过程中不计时，也不调用统计接口
+     *
+     * @param metrics 统计接口
+     */
+    public static void setParseMetrics(SqlParseMetrics metrics) {
+        parseMetrics = metrics;
     }
 
-    private static class FromHandler implements SqlHandler {
-        private final Pattern FROM_PATTERN = Pattern.compile("(FROM)(.+?)(LEFT\\s+JOIN|RIGHT\\s+JOIN|INNER\\s+ JOIN|WHERE|GROUP\\s+BY|HAVING|ORDER\\s+BY| ENDOFSQL)");
-
-        @Override
-        public void handleSql(String sql, SqlChain chain) {
-            resolveSqlAndNextFilter(new SqlHandlerContextImpl(sql, SqlChainNameEnum.FROM, chain, FROM_PATTERN));
-        }
-        @Override
-        public String getChainName() {
-            return SqlChainNameEnum.FROM.toString();
-        }
+    /**
+     * @return 当前使用的统计接口，没有开启时返回null
+     */
+    public static SqlParseMetrics getParseMetrics() {
+        return parseMetrics;
     }
 
-    private static class JoinHandler implements SqlHandler {
-        private final Pattern JOIN_PATTERN = Pattern.compile("(LEFT\\s+JOIN|RIGHT\\s+JOIN|INNER\\s+ JOIN)(.+?)(WHERE|HAVING|GROUP\\s+BY|ORDER\\s+BY| ENDOFSQL)");
-
-        /**
-         * 解析当前传入的sql语句
-         *
-         * @param sql   sql语句
-         * @param chain 下一步的处理链
-         */
-        @Override
-        public void handleSql(String sql, SqlChain chain) {
-            resolveSqlAndNextFilter(
-                    new SqlHandlerContextImpl(sql, SqlChainNameEnum.JOIN, chain, JOIN_PATTERN)
-            );
-        }
-
-        @Override
-        public String getChainName() {
-            return SqlChainNameEnum.JOIN.toString();
+    public static Map<String, String> getParsedMapSql(String sql) {
+        SqlParseCache cache = parseCache;
+        SqlHandlerChain chain = sqlChain;
+        if (cache == null) {
+            return getParsedMapSql(sql, chain);
         }
-    }
-
-    private static class WhereHandler implements SqlHandler {
-        private final Pattern SUB_QUERY_PATTERN = Pattern.compile
-                ("(WHERE)(.+?)((\\()(.+?)(\\)))");
-        private final Pattern FIRST_WHERE_PATTERN = Pattern.compile
-                ("(WHERE)(.+?)");
-        private final Pattern FINAL_PATTERN = Pattern.compile
-                ("(.+?)(GROUP\\s+BY|HAVING|ORDER\\s+BY)");
-        private final Pattern WHERE_PATTERN = Pattern.compile
-                ("(WHERE)(.+?)(GROUP\\s+BY|HAVING|ORDER\\s+BY| ENDOFSQL)");
-
-        /**
-         * 解析当前传入的sql语句，返回处理后的结果
-         *
-         * @param sql   sql语句
-         * @param chain 下一步的处理链
-         */
-        @Override
-        public void handleSql(String sql, SqlChain chain) {
-            Matcher matcher = SUB_QUERY_PATTERN.matcher(sql);
-            if (matcher.find()) {
-                logger.info("当前的语句含有()的特殊字符");
-                //查找第一个where
-                Matcher firstWhereMatcher = FIRST_WHERE_PATTERN.matcher(sql);
-                int whereEnd = 0;
-                if (firstWhereMatcher.find()) {
-                    whereEnd = firstWhereMatcher.start(2);
-                }
-                Matcher finalPattern = FINAL_PATTERN.matcher(sql);
-                int finalStart = 0;
-                while (finalPattern.find()) {
-                    System.out.println(finalPattern.group(2));
-                    finalStart = finalPattern.start(2);
-                }
-                if (whereEnd < finalStart) {
-                    setSqlMap(SqlChainNameEnum.WHERE.toString(), getResolveSql(sql, whereEnd, finalStart));
-                    chain.doFilter(sql.substring(finalStart));
-                }
+        String upperSql = pretreatmentSqlToUpperCase(sql);
+        //缓存的是子句在key中的位置，按 positions 对应回 upperSql 截取
+        int[] positions = new int[upperSql.length() + 1];
+        String key = cache.normalize(upperSql, positions);
+        ParsedSql parsed = cache.get(key);
+        SqlParseMetrics metrics = parseMetrics;
+        if (metrics != null) {
+            if (parsed == null) {
+                metrics.onCacheMiss();
             } else {
-                resolveSqlAndNextFilter(new SqlHandlerContextImpl(sql, SqlChainNameEnum.WHERE, chain, WHERE_PATTERN));
+                metrics.onCacheHit();
             }
-            /**
-             * 1.判断是否存在子查询  是否含有()的字符
-             * 2.不存在子查询的直接调用之前的处理方法
-             * 3.存在() 查询第一个where 的位置 然后在查询
-             * GROUP\s+BY|HAVING|ORDER\s+BY| ENDOFSQL 字符所在字符的位置
-             */
         }
-
-        @Override
-        public String getChainName() {
-            return SqlChainNameEnum.WHERE.toString();
+        if (parsed == null) {
+            parsed = parse(key, chain);
+            if (parsed == null) {
+                return new HashMap<>();
+            }
+            //解析期间处理链被替换的，结果不缓存
+            if (chain == sqlChain) {
+                cache.put(key, parsed);
+            }
         }
+        return toParsedMap(parsed, upperSql, positions);
     }
 
-    private static class GroupHandler implements SqlHandler {
-        private final Pattern GROUP_PATTERN = Pattern.compile
-                ("(GROUP\\s+BY)(.+?)(HAVING|ORDER\\s+BY| ENDOFSQL)");
-
-        /**
-         * 解析当前传入的sql语句，返回处理后的结果
-         *
-         * @param sql   sql语句
-         * @param chain 下一步的处理链
-         */
-        @Override
-        public void handleSql(String sql, SqlChain chain) {
-            resolveSqlAndNextFilter(new SqlHandlerContextImpl(sql, SqlChainNameEnum.GROUP, chain, GROUP_PATTERN));
-        }
-
-        @Override
-        public String getChainName() {
-            return SqlChainNameEnum.GROUP.toString();
-        }
+    /**
+     * 使用指定的处理链解析，不使用缓存
+     *
+     * @param sql   sql语句
+     * @param chain 处理链
+     * @return 处理器名称和对应的子句
+     */
+    public static Map<String, String> getParsedMapSql(String sql, SqlHandlerChain chain) {
+        ParsedSql parsed = parse(pretreatmentSqlToUpperCase(sql), chain);
+        return parsed == null ? new HashMap<String, String>() : toParsedMap(parsed);
     }
 
-    private static class HavingHandler implements SqlHandler {
-        private final Pattern HAVING_PATTERN = Pattern.compile
-                ("(HAVING\\s+BY)(.+?)(ORDER\\s+BY| ENDOFSQL)");
-
-        /**
-         * 解析当前传入的sql语句，返回处理后的结果
-         *
-         * @param sql   sql语句
-         * @param chain 下一步的处理链
-         */
-        @Override
-        public void handleSql(String sql, SqlChain chain) {
-            resolveSqlAndNextFilter(new SqlHandlerContextImpl(sql, SqlChainNameEnum.HAVING, chain, HAVING_PATTERN));
-        }
-
-        @Override
-        public String getChainName() {
-            return SqlChainNameEnum.HAVING.toString();
-        }
+    /**
+     * 使用默认的处理链解析，不转换大小写，不复制语句；子句在读取时才生成
+     *
+     * @param sql sql语句
+     * @return 解析结果，解析异常时返回null
+     */
+    public static ParsedSql parseSql(CharSequence sql) {
+        return parse(sql, sqlChain);
     }
 
-    private static class OrderHandler implements SqlHandler {
-        private final Pattern ORDER_PATTERN = Pattern.compile
-                ("(ORDER\\s+BY)(.+)( ENDOFSQL)");
-
-        /**
-         * 解析当前传入的sql语句，返回处理后的结果
-         *
-         * @param sql   sql语句
-         * @param chain 下一步的处理链
-         */
-        @Override
-        public void handleSql(String sql, SqlChain chain) {
-            resolveSqlAndNextFilter(new SqlHandlerContextImpl(sql, SqlChainNameEnum.ORDER, chain, ORDER_PATTERN));
-        }
-
-        @Override
-        public String getChainName() {
-            return SqlChainNameEnum.ORDER.toString();
-        }
+    /**
+     * 使用指定的处理链解析，不转换大小写，不复制语句；子句在读取时才生成
+     *
+     * @param sql   sql语句
+     * @param chain 处理链
+     * @return 解析结果，解析异常时返回null
+     */
+    public static ParsedSql parseSql(CharSequence sql, SqlHandlerChain chain) {
+        return parse(sql, chain);
     }
 
-    private static class ApplicationSqlChain implements SqlChain {
-        private SqlHandler[] handles = new SqlHandler[0];
-        private int pos = 0;//维持过滤器链中的当前位置
-        private int n = 0;//过滤器链中的过滤器数量
-
-        public SqlHandler[] getHandles() {
-            return handles;
-        }
-
-        @Override
-        public void doFilter(String sql) {
-            internalDoFilter(sql);
-        }
+    /**
+     * 从 Reader 中按 ; 逐条读取sql并在当前线程中解析，每解析完一条回调一次
+     *
+     * @param reader   sql脚本或者日志
+     * @param callback 解析结果的回调
+     * @return 解析的语句数量
+     */
+    public static long parseStream(Reader reader, SqlParseCallback callback) throws IOException {
+        return SqlStreamParser.parse(reader, callback);
+    }
 
-        private void internalDoFilter(String sql) {
-            if (pos < n) {
-                SqlHandler sqlHandler = handles[pos];
-                pos++;
-                sqlHandler.handleSql(sql, this);
-            }
-        }
+    /**
+     * 从 Reader 中按 ; 逐条读取sql并使用多个线程解析，解析中的语句数量有上限
+     *
+     * @param reader   sql脚本或者日志
+     * @param callback 解析结果的回调，ordered 为false时在解析线程中调用，需要线程安全
+     * @param workers  解析的线程数量
+     * @param ordered  是否按语句的顺序回调
+     * @return 解析的语句数量
+     */
+    public static long parseStream(Reader reader, SqlParseCallback callback, int workers, boolean ordered) throws IOException {
+        return SqlStreamParser.parse(reader, callback, workers, ordered);
+    }
 
-        public void addFilter(SqlHandler sqlHandler) {
-            if (handles.length == n) {
-                SqlHandler[] arr2 = java.util.Arrays.copyOf(handles, n + 1);
-                handles = arr2;
-            }
-            handles[n++] = sqlHandler;
+    /**
+     * 按 ; 逐条读取sql文件并使用多个线程解析
+     *
+     * @param path     sql文件
+     * @param charset  文件的编码
+     * @param callback 解析结果的回调，ordered 为false时在解析线程中调用，需要线程安全
+     * @param workers  解析的线程数量
+     * @param ordered  是否按语句的顺序回调
+     * @return 解析的语句数量
+     */
+    public static long parseStream(Path path, Charset charset, SqlParseCallback callback, int workers, boolean ordered) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, charset)) {
+            return SqlStreamParser.parse(reader, callback, workers, ordered);
         }
-
     }
 
-    private static String replaceAllCarriage(String str) {
-        return str.replaceAll("\n", " ");
+    /**
+     * 使用所有的cpu核并行解析一批语句，结果的顺序和传入的顺序一致
+     *
+     * @param sqls sql语句
+     * @return 解析结果、每秒解析的语句数量和每条语句的解析耗时
+     */
+    public static SqlBatchResult parseAll(List<String> sqls) {
+        return SqlBatchParser.parse(sqls, sqlChain);
     }
 
-    private static String pretreatmentSqlToUpperCase(String sql) {
-        StringBuffer stringBuffer = new StringBuffer();
-        //处理sql语句
-        sql =sql.trim();
-        sql = replaceAllCarriage(sql);
-        stringBuffer.append(sql.toUpperCase()).append(" ENDOFSQL");
-        return stringBuffer.toString();
+    /**
+     * 使用指定的 ForkJoinPool 并行解析一批语句，结果的顺序和传入的顺序一致
+     *
+     * @param sqls sql语句
+     * @param pool 解析使用的线程池
+     * @return 解析结果、每秒解析的语句数量和每条语句的解析耗时
+     */
+    public static SqlBatchResult parseAll(String[] sqls, ForkJoinPool pool) {
+        return SqlBatchParser.parse(sqls, sqlChain, pool);
     }
 
-
-    public static String getParsedSql(Map<String, String> parsedMap, SqlParserEnum type) {
-        StringBuffer result=new StringBuffer();
-        switch (type) {
-            case SELECT:
-                //按照责任链的顺序输出
-                ApplicationSqlChain chain= getDefaultsSqlChain();
-                for (SqlHandler sqlHandler: chain.getHandles()) {
-                    result.append(parsedMap.get(sqlHandler.getChainName())).append(" ");
-                }
-                break;
+    private static Map<String, String> toParsedMap(ParsedSql parsed) {
+        Map<String, String> map = new HashMap<>(parsed.getChain().size() * 2);
+        for (int i = 0; i < parsed.getChain().size(); i++) {
+            map.put(parsed.getChain().getChainNames().get(i), replaceAllCarriage(parsed.getClause(i)));
         }
-        return result.toString();
+        return map;
     }
 
-    public static Map<String, String> getParsedMapSql(String sql) {
-        sql = pretreatmentSqlToUpperCase(sql);
-        ApplicationSqlChain chain = getDefaultsSqlChain();
-        Map<String, String> map = new ConcurrentHashMap<>(7);
-        spinlock();
-        try {
-            chain.doFilter(sql);
-            map = getSqlMap();
-            cleanMap();
-        } catch (Exception e) {
-            logger.warn("解析查询语句sql异常" + e);
-        } finally {
-            //解锁
-            unSpinLock();
+    /**
+     * 解析结果是规范化语句中的位置，子句从 sql 中相应的位置截取
+     *
+     * @param positions 规范化语句中每个位置对应的 sql 中的位置
+     */
+    private static Map<String, String> toParsedMap(ParsedSql parsed, String sql, int[] positions) {
+        Map<String, String> map = new HashMap<>(parsed.getChain().size() * 2);
+        for (int i = 0; i < parsed.getChain().size(); i++) {
+            String clause = parsed.hasClause(i)
+                    ? sql.substring(positions[parsed.getClauseStart(i)], positions[parsed.getClauseEnd(i)]) : "";
+            map.put(parsed.getChain().getChainNames().get(i), replaceAllCarriage(clause));
         }
         return map;
     }
 
-    private static ApplicationSqlChain getDefaultsSqlChain() {
-        SqlHandler selectHandler = new SelectHandler();
-        SqlHandler fromHandler = new FromHandler();
-        SqlHandler joinHandler = new JoinHandler();
-        SqlHandler whereHandler = new WhereHandler();
-        SqlHandler groupHandler = new GroupHandler();
-        SqlHandler havingHandler = new HavingHandler();
-        SqlHandler orderHandler = new OrderHandler();
-        ApplicationSqlChain chain = new ApplicationSqlChain();
-        chain.addFilter(selectHandler);
-        chain.addFilter(fromHandler);
-        chain.addFilter(joinHandler);
-        chain.addFilter(whereHandler);
-        chain.addFilter(groupHandler);
-        chain.addFilter(havingHandler);
-        chain.addFilter(orderHandler);
-        return chain;
-    }
-
-    private static void spinlock() {
-        Thread thread = Thread.currentThread();
-        while (!atomicReference.compareAndSet(null, thread)) {
+    /**
+     * @param sql sql语句
+     * @return 解析的结果，解析异常时返回null
+     */
+    private static ParsedSql parse(CharSequence sql, SqlHandlerChain chain) {
+        SqlParseMetrics metrics = parseMetrics;
+        if (metrics == null) {
+            try {
+                return chain.parse(sql);
+            } catch (Exception e) {
+                logger.warn("解析查询语句sql异常", e);
+                return null;
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            ParsedSql parsed = chain.parse(sql, metrics);
+            metrics.onParsed(sql.length(), System.nanoTime() - start);
+            return parsed;
+        } catch (Exception e) {
+            metrics.onFailed(sql, e);
+            logger.warn("解析查询语句sql异常", e);
+            return null;
         }
-        logger.info("正在调用的线程的为:" + thread.getName());
-    }
-
-    private  static void unSpinLock() {
-        Thread thread = Thread.currentThread();
-        atomicReference.compareAndSet(thread, null);
-        logger.info("释放资源的线程为:" + thread.getName());
     }
 
-
-
-
-
 }
-
-
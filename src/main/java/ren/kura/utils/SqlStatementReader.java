@@ -0,0 +1,142 @@
+package ren.kura.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * @ClassName: SqlStatementReader
+ * @Descripton: 从 Reader 中按 ; 逐条读取sql语句，引号和注释中的 ; 不作为语句的结束
+ * 只缓存当前的一条语句，可以用来读取很大的sql脚本或者慢查询日志
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public class SqlStatementReader implements Closeable {
+
+    private static final int NORMAL = 0;
+
+    private static final int QUOTED = 1;
+
+    private static final int LINE_COMMENT = 2;
+
+    private static final int BLOCK_COMMENT = 3;
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[8192];
+
+    private int pos = 0;
+
+    private int limit = 0;
+
+    private int state = NORMAL;
+
+    private char quote;
+
+    private final StringBuilder statement = new StringBuilder(256);
+
+    /**
+     * 当前语句是否有注释和空白以外的内容
+     */
+    private boolean hasCode = false;
+
+    public SqlStatementReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 读取下一条语句，不包含结尾的 ; 和首尾的空白；只有注释的语句会被跳过
+     *
+     * @return 下一条语句，读取结束时返回null
+     */
+    public String nextStatement() throws IOException {
+        int c;
+        while ((c = read()) >= 0) {
+            char ch = (char) c;
+            switch (state) {
+                case NORMAL:
+                    if (ch == ';') {
+                        if (hasCode) {
+                            return take();
+                        }
+                        statement.setLength(0);
+                        continue;
+                    }
+                    if (ch == '-' && peek() == '-') {
+                        state = LINE_COMMENT;
+                    } else if (ch == '/' && peek() == '*') {
+                        //把 * 一起读掉，避免 /*/ 被当成注释的结束
+                        statement.append(ch);
+                        ch = (char) read();
+                        state = BLOCK_COMMENT;
+                    } else {
+                        if (ch == '\'' || ch == '"' || ch == '`') {
+                            state = QUOTED;
+                            quote = ch;
+                        }
+                        hasCode = hasCode || !Character.isWhitespace(ch);
+                    }
+                    break;
+                case QUOTED:
+                    if (ch == quote) {
+                        state = NORMAL;
+                    }
+                    break;
+                case LINE_COMMENT:
+                    if (ch == '\n') {
+                        state = NORMAL;
+                    }
+                    break;
+                default:
+                    if (ch == '*' && peek() == '/') {
+                        statement.append(ch);
+                        ch = (char) read();
+                        state = NORMAL;
+                    }
+                    break;
+            }
+            statement.append(ch);
+        }
+        if (hasCode) {
+            return take();
+        }
+        statement.setLength(0);
+        return null;
+    }
+
+    private String take() {
+        String sql = statement.toString().trim();
+        statement.setLength(0);
+        hasCode = false;
+        return sql;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = reader.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,206 @@
+package ren.kura.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @ClassName: SqlStreamParser
+ * @Descripton: 按流逐条读取并解析sql语句，多线程解析时按批次提交，解析中的批次数量有上限，内存占用不随文件大小增长
+ * 按顺序回调时，回调在调用线程中执行；不按顺序回调时，回调在解析的线程中执行，需要回调自己保证线程安全
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+final class SqlStreamParser {
+
+    /**
+     * 每个解析线程最多排队的批次数量
+     */
+    private static final int IN_FLIGHT_PER_WORKER = 4;
+
+    /**
+     * 每个批次最多的语句数量和字符数，小语句合并成一批提交，减少线程切换
+     */
+    private static final int CHUNK_STATEMENTS = 64;
+
+    private static final int CHUNK_CHARS = 64 * 1024;
+
+    private SqlStreamParser() {
+    }
+
+    /**
+     * 在调用线程中逐条解析
+     *
+     * @return 解析的语句数量
+     */
+    static long parse(Reader reader, SqlParseCallback callback) throws IOException {
+        SqlStatementReader statements = new SqlStatementReader(reader);
+        long index = 0;
+        String sql;
+        while ((sql = statements.nextStatement()) != null) {
+            callback.onParsed(index++, sql, SqlParserUtil.parseSql(sql));
+        }
+        return index;
+    }
+
+    /**
+     * 使用 workers 个线程解析
+     *
+     * @param ordered 是否按语句的顺序回调
+     * @return 解析的语句数量
+     */
+    static long parse(Reader reader, SqlParseCallback callback, int workers, boolean ordered) throws IOException {
+        if (workers <= 1) {
+            return parse(reader, callback);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new ParserThreadFactory());
+        try {
+            return ordered ? parseOrdered(reader, callback, executor, workers * IN_FLIGHT_PER_WORKER)
+                    : parseUnordered(reader, callback, executor, workers * IN_FLIGHT_PER_WORKER);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 按提交的顺序等待解析结果，队列满了以后先回调最早提交的批次
+     */
+    private static long parseOrdered(Reader reader, SqlParseCallback callback, ExecutorService executor, int maxInFlight) throws IOException {
+        SqlStatementReader statements = new SqlStatementReader(reader);
+        ArrayDeque<Future<ParsedSql[]>> parsing = new ArrayDeque<>(maxInFlight);
+        ArrayDeque<String[]> chunks = new ArrayDeque<>(maxInFlight);
+        long index = 0;
+        String[] chunk;
+        while ((chunk = nextChunk(statements)) != null) {
+            if (parsing.size() == maxInFlight) {
+                index = callback(callback, index, chunks.poll(), await(parsing.poll()));
+            }
+            parsing.add(executor.submit(new ParseTask(chunk)));
+            chunks.add(chunk);
+        }
+        while (!parsing.isEmpty()) {
+            index = callback(callback, index, chunks.poll(), await(parsing.poll()));
+        }
+        return index;
+    }
+
+    /**
+     * 解析线程直接回调，用信号量限制解析中的批次数量
+     */
+    private static long parseUnordered(Reader reader, final SqlParseCallback callback, ExecutorService executor, int maxInFlight) throws IOException {
+        SqlStatementReader statements = new SqlStatementReader(reader);
+        final Semaphore permits = new Semaphore(maxInFlight);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long index = 0;
+        String[] chunk;
+        try {
+            while (failure.get() == null && (chunk = nextChunk(statements)) != null) {
+                permits.acquire();
+                final long first = index;
+                final String[] sqls = chunk;
+                index += chunk.length;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            callback(callback, first, sqls, new ParseTask(sqls).call());
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                });
+            }
+            //等待所有的批次解析完成
+            permits.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("parse sql stream interrupted");
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return index;
+    }
+
+    /**
+     * 读取下一批语句
+     *
+     * @return 下一批语句，读取结束时返回null
+     */
+    private static String[] nextChunk(SqlStatementReader statements) throws IOException {
+        List<String> chunk = new ArrayList<>(CHUNK_STATEMENTS);
+        int chars = 0;
+        String sql;
+        while (chunk.size() < CHUNK_STATEMENTS && chars < CHUNK_CHARS && (sql = statements.nextStatement()) != null) {
+            chunk.add(sql);
+            chars += sql.length();
+        }
+        return chunk.isEmpty() ? null : chunk.toArray(new String[chunk.size()]);
+    }
+
+    /**
+     * @return 下一批语句的第一个序号
+     */
+    private static long callback(SqlParseCallback callback, long first, String[] sqls, ParsedSql[] parsed) {
+        for (int i = 0; i < sqls.length; i++) {
+            callback.onParsed(first + i, sqls[i], parsed[i]);
+        }
+        return first + sqls.length;
+    }
+
+    private static ParsedSql[] await(Future<ParsedSql[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("parse sql stream interrupted");
+        } catch (ExecutionException e) {
+            //解析异常时 parseSql 已经返回null，这里只有运行期错误
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static class ParseTask implements Callable<ParsedSql[]> {
+        private final String[] sqls;
+
+        ParseTask(String[] sqls) {
+            this.sqls = sqls;
+        }
+
+        @Override
+        public ParsedSql[] call() {
+            ParsedSql[] parsed = new ParsedSql[sqls.length];
+            for (int i = 0; i < sqls.length; i++) {
+                parsed[i] = SqlParserUtil.parseSql(sqls[i]);
+            }
+            return parsed;
+        }
+    }
+
+    private static class ParserThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+        private final int poolNumber = POOL_NUMBER.getAndIncrement();
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "sql-parser-" + poolNumber + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ren.kura.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @ClassName: SqlTokens
+ * @Descripton: SqlLexer 对一层语句的扫描结果，按出现的顺序保存子句关键字和关键字在原语句中的起始位置
+ * 子查询的扫描结果保存在 subQueries 中
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+final class SqlTokens {
+
+    private final CharSequence sql;
+
+    /**
+     * 这一层语句在原语句中的起始位置，子查询为 SELECT 的位置
+     */
+    private final int from;
+
+    /**
+     * 这一层语句在原语句中的结束位置，子查询为右括号的位置
+     */
+    private int to;
+
+    /**
+     * 这一层语句所在的括号深度，最外层为0
+     */
+    private final int depth;
+
+    private final SqlTokens parent;
+
+    private List<SqlTokens> subQueries = Collections.emptyList();
+
+    private SqlKeyword[] keywords = new SqlKeyword[8];
+
+    private int[] starts = new int[8];
+
+    private int size = 0;
+
+    /**
+     * 遇到没有处理器的集合运算（UNION 等）之后为 true，这一层语句不再记录关键字
+     */
+    private boolean sealed = false;
+
+    SqlTokens(CharSequence sql, int from, int depth, SqlTokens parent) {
+        this.sql = sql;
+        this.from = from;
+        this.to = sql.length();
+        this.depth = depth;
+        this.parent = parent;
+        if (parent != null) {
+            parent.addSubQuery(this);
+        }
+    }
+
+    void add(SqlKeyword keyword, int start) {
+        if (size == keywords.length) {
+            keywords = Arrays.copyOf(keywords, size << 1);
+            starts = Arrays.copyOf(starts, size << 1);
+        }
+        keywords[size] = keyword;
+        starts[size] = start;
+        size++;
+    }
+
+    private void addSubQuery(SqlTokens subQuery) {
+        if (subQueries.isEmpty()) {
+            subQueries = new ArrayList<>(2);
+        }
+        subQueries.add(subQuery);
+    }
+
+    void seal() {
+        sealed = true;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    void close(int to) {
+        this.to = to;
+    }
+
+    CharSequence getSql() {
+        return sql;
+    }
+
+    int getFrom() {
+        return from;
+    }
+
+    int getTo() {
+        return to;
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    SqlTokens getParent() {
+        return parent;
+    }
+
+    List<SqlTokens> getSubQueries() {
+        return subQueries;
+    }
+
+    int size() {
+        return size;
+    }
+
+    SqlKeyword keyword(int index) {
+        return keywords[index];
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * 第index个关键字之前的语句的结束位置，超出范围时为这一层语句的结束位置
+     */
+    int end(int index) {
+        return index < size ? starts[index] : to;
+    }
+}
@@ -0,0 +1,178 @@
+package ren.kura.utils;
+
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.impl.jdbcjobstore.SchedulerStateRecord;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 15:00
+ * @Description: 集群模式下按任务组把触发器分配到各个节点，PartitionedJDBCDelegate 和 PartitionedPostgreSQLDelegate 共用
+ * 存活的节点为 QRTZ_SCHEDULER_STATE 中按时签到的实例，按实例id排序；任务组的hash对节点数取余，等于当前节点的序号的组由当前节点获取
+ * 节点失效之后不再签到，从存活的节点中去掉，它的任务组重新分配给其他节点；过期超过 stealAfterMillis 的触发器任何节点都可以获取，避免繁忙的节点积压
+ * 通过 org.quartz.jobStore.driverDelegateInitString 配置，格式为 stealAfterMillis=30000|scanLimit=1000|membershipRefreshMillis=5000
+ */
+final class TriggerPartitioner {
+
+    /**
+     * 和 Quartz 的 ClusterManager 判断节点失效时使用的宽限时间一致
+     */
+    private static final long CHECKIN_GRACE_MILLIS = 7500L;
+
+    /**
+     * 和 StdJDBCConstants.SELECT_NEXT_TRIGGER_TO_ACQUIRE 相同，多读取 JOB_GROUP 用于分区
+     */
+    static final String SELECT_NEXT_TRIGGER_TO_ACQUIRE = "SELECT TRIGGER_NAME, TRIGGER_GROUP, JOB_GROUP, NEXT_FIRE_TIME, PRIORITY FROM {0}TRIGGERS"
+            + " WHERE SCHED_NAME = {1} AND TRIGGER_STATE = ? AND NEXT_FIRE_TIME <= ?"
+            + " AND (MISFIRE_INSTR = -1 OR (MISFIRE_INSTR != -1 AND NEXT_FIRE_TIME >= ?)) ORDER BY NEXT_FIRE_TIME ASC, PRIORITY DESC";
+
+    private long stealAfterMillis = 30000L;
+
+    private int scanLimit = 1000;
+
+    private long membershipRefreshMillis = 5000L;
+
+    private volatile Membership membership;
+
+    /**
+     * 读取自己的配置，返回剩下的配置交给 StdJDBCDelegate
+     */
+    String configure(String initString) throws NoSuchDelegateException {
+        if (initString == null) {
+            return null;
+        }
+        StringBuilder rest = new StringBuilder();
+        for (String setting : initString.split("\\|")) {
+            String[] parts = setting.split("=", 2);
+            String name = parts[0].trim();
+            String value = parts.length > 1 ? parts[1].trim() : "";
+            try {
+                if ("stealAfterMillis".equals(name)) {
+                    stealAfterMillis = Long.parseLong(value);
+                } else if ("scanLimit".equals(name)) {
+                    scanLimit = Integer.parseInt(value);
+                } else if ("membershipRefreshMillis".equals(name)) {
+                    membershipRefreshMillis = Long.parseLong(value);
+                } else {
+                    if (rest.length() > 0) {
+                        rest.append('|');
+                    }
+                    rest.append(setting);
+                }
+            } catch (NumberFormatException e) {
+                throw new NoSuchDelegateException("invalid setting: " + setting);
+            }
+        }
+        return rest.length() == 0 ? null : rest.toString();
+    }
+
+    /**
+     * 按触发时间的顺序读取到期的触发器，只保留属于当前节点的任务组和过期太久的触发器，最多读取 scanLimit 行
+     *
+     * @param sql           替换了表名前缀的 SELECT_NEXT_TRIGGER_TO_ACQUIRE
+     * @param states        读取存活的节点
+     * @param instanceId    当前节点的实例id
+     * @param noLaterThan   触发时间的上限
+     * @param noEarlierThan 触发时间的下限
+     * @param maxCount      最多获取的触发器数量
+     * @param waitingState  等待触发的状态
+     */
+    List<TriggerKey> selectTriggerToAcquire(Connection conn, String sql, StateSource states, String instanceId,
+                                            long noLaterThan, long noEarlierThan, int maxCount, String waitingState) throws SQLException {
+        if (maxCount < 1) {
+            maxCount = 1;
+        }
+        Membership current = membership(conn, states, instanceId);
+        long stealBefore = stealAfterMillis < 0 ? Long.MIN_VALUE : System.currentTimeMillis() - stealAfterMillis;
+        List<TriggerKey> nextTriggers = new ArrayList<>(maxCount);
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = conn.prepareStatement(sql);
+            ps.setMaxRows(Math.max(scanLimit, maxCount));
+            ps.setFetchSize(Math.min(Math.max(scanLimit, maxCount), 100));
+            ps.setString(1, waitingState);
+            ps.setBigDecimal(2, new BigDecimal(String.valueOf(noLaterThan)));
+            ps.setBigDecimal(3, new BigDecimal(String.valueOf(noEarlierThan)));
+            rs = ps.executeQuery();
+            while (nextTriggers.size() < maxCount && rs.next()) {
+                //同一个任务组的触发器可以在不同的触发器组中，按任务组分区
+                if (current.owns(rs.getString("JOB_GROUP")) || rs.getLong("NEXT_FIRE_TIME") < stealBefore) {
+                    nextTriggers.add(TriggerKey.triggerKey(rs.getString("TRIGGER_NAME"), rs.getString("TRIGGER_GROUP")));
+                }
+            }
+            return nextTriggers;
+        } finally {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 存活的节点，超过 membershipRefreshMillis 之后重新读取
+     */
+    private Membership membership(Connection conn, StateSource states, String instanceId) throws SQLException {
+        long now = System.currentTimeMillis();
+        Membership current = membership;
+        if (current != null && now - current.loadedAt < membershipRefreshMillis) {
+            return current;
+        }
+        List<String> live = new ArrayList<>();
+        for (SchedulerStateRecord record : states.selectSchedulerStateRecords(conn, null)) {
+            if (record.getCheckinTimestamp() + record.getCheckinInterval() + CHECKIN_GRACE_MILLIS >= now) {
+                live.add(record.getSchedulerInstanceId());
+            }
+        }
+        //第一次签到之前也要包括当前节点
+        if (!live.contains(instanceId)) {
+            live.add(instanceId);
+        }
+        Collections.sort(live);
+        current = new Membership(live.indexOf(instanceId), live.size(), now);
+        membership = current;
+        return current;
+    }
+
+    /**
+     * 读取 QRTZ_SCHEDULER_STATE，由 StdJDBCDelegate 实现
+     */
+    interface StateSource {
+        List<SchedulerStateRecord> selectSchedulerStateRecords(Connection conn, String theInstanceId) throws SQLException;
+    }
+
+    private static final class Membership {
+        private final int index;
+        private final int size;
+        private final long loadedAt;
+
+        Membership(int index, int size, long loadedAt) {
+            this.index = index;
+            this.size = size;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean owns(String group) {
+            return size <= 1 || ((group == null ? 0 : group.hashCode()) & 0x7fffffff) % size == index;
+        }
+    }
+}
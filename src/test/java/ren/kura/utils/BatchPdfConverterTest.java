@@ -0,0 +1,131 @@
+package ren.kura.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 19:30
+ * @Description: BatchPdfConverter 计算目标文件、读取进度日志和判断是否需要重新转换，不需要启动 OpenOffice
+ */
+public class BatchPdfConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sourceDir;
+
+    private File targetDir;
+
+    @Before
+    public void setUp() throws IOException {
+        sourceDir = folder.newFolder("source");
+        targetDir = folder.newFolder("target");
+    }
+
+    private static File write(File dir, String path, String content) throws IOException {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+        return file;
+    }
+
+    private static String relative(File dir, File file) {
+        return dir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    @Test
+    public void keepsExtensionWhenTargetsCollide() throws IOException {
+        File doc = write(sourceDir, "sub/report.doc", "doc");
+        File xls = write(sourceDir, "sub/report.xls", "xls");
+        File single = write(sourceDir, "sub/notes.txt", "txt");
+        BatchPdfConverter converter = new BatchPdfConverter(null, sourceDir, targetDir);
+        BatchPdfConverter.Report report = new BatchPdfConverter.Report();
+
+        Map<File, File> targets = converter.plan(report);
+
+        assertEquals(3, targets.size());
+        assertEquals("sub/report.doc.pdf", relative(targetDir, targets.get(doc)));
+        assertEquals("sub/report.xls.pdf", relative(targetDir, targets.get(xls)));
+        assertEquals("sub/notes.pdf", relative(targetDir, targets.get(single)));
+        assertEquals(0, report.getFailed());
+    }
+
+    @Test
+    public void reportsConflictWhenKeptExtensionIsStillTaken() throws IOException {
+        File doc = write(sourceDir, "a.doc", "doc");
+        File docTxt = write(sourceDir, "a.doc.txt", "doc.txt");
+        File txt = write(sourceDir, "a.txt", "txt");
+        BatchPdfConverter converter = new BatchPdfConverter(null, sourceDir, targetDir);
+        BatchPdfConverter.Report report = new BatchPdfConverter.Report();
+
+        Map<File, File> targets = converter.plan(report);
+
+        //a.doc 和 a.txt 都是 a.pdf，保留扩展名之后 a.doc.pdf 和 a.doc.txt 的目标文件相同
+        assertEquals("a.doc.pdf", relative(targetDir, targets.get(doc)));
+        assertEquals("a.txt.pdf", relative(targetDir, targets.get(txt)));
+        assertFalse(targets.containsKey(docTxt));
+        assertEquals(1, report.getFailed());
+        assertTrue(report.getFailures().get("a.doc.txt").startsWith("target file conflict"));
+    }
+
+    @Test
+    public void doesNotCountOwnTargetsAsExistingPdfWhenConvertingInPlace() throws IOException {
+        write(sourceDir, "report.doc", "doc");
+        write(sourceDir, "report.pdf", "converted before");
+        write(sourceDir, "manual.pdf", "user pdf");
+        BatchPdfConverter converter = new BatchPdfConverter(null, sourceDir, sourceDir);
+        BatchPdfConverter.Report report = new BatchPdfConverter.Report();
+
+        Map<File, File> targets = converter.plan(report);
+
+        assertEquals(1, targets.size());
+        assertEquals(1, report.getTotal());
+        assertEquals(1, report.getAlreadyPdf());
+    }
+
+    @Test
+    public void resumesAfterPartialJournalLine() throws IOException {
+        File journal = write(targetDir, ".pdf-convert.journal",
+                "OK\ta.doc\t3,1000\nOK\tb.doc\t3,1000\nFAIL\tb.doc\tTIMEOUT\nOK\tc.d");
+        BatchPdfConverter converter = new BatchPdfConverter(null, sourceDir, targetDir);
+
+        Map<String, String> done = converter.loadJournal();
+        assertEquals(1, done.size());
+        assertEquals("3,1000", done.get("a.doc"));
+
+        //上次中断时写了一半的行补上换行，这次追加的日志不会接在它后面
+        Files.write(journal.toPath(), "OK\tc.doc\t5,2000\n".getBytes("UTF-8"), StandardOpenOption.APPEND);
+        done = converter.loadJournal();
+        assertEquals(2, done.size());
+        assertEquals("5,2000", done.get("c.doc"));
+    }
+
+    @Test
+    public void reconvertsWhenTargetIsMissingOrSourceChanged() throws IOException {
+        File source = write(sourceDir, "a.doc", "doc");
+        File target = new File(targetDir, "a.pdf");
+        write(targetDir, ".pdf-convert.journal", "OK\ta.doc\t" + source.length() + "," + source.lastModified() + "\n");
+        BatchPdfConverter converter = new BatchPdfConverter(null, sourceDir, targetDir);
+        Map<String, String> done = converter.loadJournal();
+
+        assertFalse(converter.alreadyConverted(done, source, target));
+        write(targetDir, "a.pdf", "pdf");
+        assertTrue(converter.alreadyConverted(done, source, target));
+        write(sourceDir, "a.doc", "changed");
+        assertFalse(converter.alreadyConverted(done, source, target));
+    }
+}
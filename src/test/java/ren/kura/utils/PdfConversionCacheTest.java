@@ -0,0 +1,158 @@
+package ren.kura.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author: LiuHao
+ * @Date: 2026/10/18
+ * @Time: 19:10
+ * @Description: PdfConversionCache 的 key、命中、保存和按使用顺序淘汰，重启之后恢复使用顺序
+ */
+public class PdfConversionCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = folder.newFolder("cache");
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+    }
+
+    /**
+     * 保存一个10字节的转换结果
+     */
+    private void store(PdfConversionCache cache, String key) throws IOException {
+        cache.store(key, write(key + ".pdf", String.format("%-10s", key)));
+    }
+
+    private boolean cached(String key) {
+        return new File(cacheDir, key + ".pdf").isFile();
+    }
+
+    @Test
+    public void keyDependsOnContentAndOptions() throws IOException {
+        PdfConversionCache cache = new PdfConversionCache(cacheDir, 1024);
+        File a = write("a.doc", "same content");
+        File b = write("b.doc", "same content");
+        File c = write("c.doc", "other content");
+
+        assertEquals(64, cache.key(a, "pdf").length());
+        assertEquals(cache.key(a, "pdf"), cache.key(b, "pdf"));
+        assertNotEquals(cache.key(a, "pdf"), cache.key(a, "odt"));
+        assertNotEquals(cache.key(a, "pdf"), cache.key(c, "pdf"));
+    }
+
+    @Test
+    public void fetchesStoredFile() throws IOException {
+        PdfConversionCache cache = new PdfConversionCache(cacheDir, 1024);
+        File target = write("report.pdf", "converted");
+
+        assertFalse(cache.fetch("k1", new File(folder.getRoot(), "miss.pdf")));
+        cache.store("k1", target);
+        File copy = new File(folder.getRoot(), "out/copy.pdf");
+        assertTrue(cache.fetch("k1", copy));
+
+        assertEquals("converted", read(copy));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(9, cache.getTotalBytes());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getStoreCount());
+    }
+
+    @Test
+    public void fetchDoesNotTouchModifiedTimeOfLinkedFiles() throws IOException {
+        PdfConversionCache cache = new PdfConversionCache(cacheDir, 1024);
+        File target = write("report.pdf", "converted");
+        long modified = 1000000000000L;
+        assertTrue(target.setLastModified(modified));
+
+        cache.store("k1", target);
+        assertTrue(cache.fetch("k1", new File(folder.getRoot(), "copy.pdf")));
+
+        assertEquals(modified, target.lastModified());
+    }
+
+    @Test
+    public void storeIgnoresEmptyAndOversizedFiles() throws IOException {
+        PdfConversionCache cache = new PdfConversionCache(cacheDir, 5);
+        cache.store("empty", write("empty.pdf", ""));
+        cache.store("large", write("large.pdf", "0123456789"));
+
+        assertEquals(0, cache.getEntryCount());
+        assertFalse(cached("empty"));
+        assertFalse(cached("large"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        PdfConversionCache cache = new PdfConversionCache(cacheDir, 25);
+        store(cache, "a");
+        store(cache, "b");
+        assertTrue(cache.fetch("a", new File(folder.getRoot(), "copy.pdf")));
+        store(cache, "c");
+
+        assertTrue(cached("a"));
+        assertFalse(cached("b"));
+        assertTrue(cached("c"));
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(20, cache.getTotalBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertFalse(cache.fetch("b", new File(folder.getRoot(), "copy.pdf")));
+    }
+
+    @Test
+    public void restoresOrderAndRemovesTempFilesAfterRestart() throws IOException {
+        PdfConversionCache cache = new PdfConversionCache(cacheDir, 35);
+        store(cache, "a");
+        store(cache, "b");
+        assertTrue(cache.fetch("a", new File(folder.getRoot(), "copy.pdf")));
+        store(cache, "c");
+        //上次保存时没有改名的临时文件
+        File temp = new File(cacheDir, "d.12.tmp");
+        Files.write(temp.toPath(), new byte[]{1, 2, 3});
+
+        PdfConversionCache restarted = new PdfConversionCache(cacheDir, 35);
+        assertFalse(temp.exists());
+        assertEquals(3, restarted.getEntryCount());
+        assertEquals(30, restarted.getTotalBytes());
+
+        store(restarted, "d");
+        assertFalse(cached("b"));
+        assertTrue(cached("a"));
+        assertTrue(cached("c"));
+        assertTrue(cached("d"));
+        assertArrayEquals(new String[]{"a.pdf", "c.pdf", "d.pdf", "lru.index"}, sorted(cacheDir.list()));
+    }
+
+    private static String[] sorted(String[] names) {
+        Arrays.sort(names);
+        return names;
+    }
+}
@@ -0,0 +1,111 @@
+package ren.kura.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 19:50
+ * @Description: 批量添加定时任务时，重复或者不合法的任务记录在 JobBatchResult 中，不影响同一批的其他任务
+ */
+public class ScheduledUtilsTest {
+
+    private static final String GROUP = "batch";
+
+    private ScheduleManager scheduleManager;
+
+    private ScheduledUtils scheduledUtils;
+
+    private Date startDate;
+
+    public static class NoopJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.scheduler.instanceName", "ScheduledUtilsTest");
+        properties.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        properties.setProperty("org.quartz.threadPool.class", "org.quartz.simpl.SimpleThreadPool");
+        properties.setProperty("org.quartz.threadPool.threadCount", "1");
+        properties.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        scheduleManager = new ScheduleManager(properties);
+        scheduledUtils = new ScheduledUtils(scheduleManager, ScheduledUtils.TriggerMode.ONE_SHOT, TimeZone.getDefault());
+        startDate = new Date(System.currentTimeMillis() + 3600 * 1000L);
+    }
+
+    @After
+    public void tearDown() {
+        scheduleManager.shutdownGracefully(0);
+    }
+
+    private JobSpec spec(String name) {
+        return new JobSpec(name, GROUP, name, GROUP, NoopJob.class, startDate, name);
+    }
+
+    private HashSet<JobKey> storedJobs() throws Exception {
+        return new HashSet<>(scheduleManager.getScheduler().getJobKeys(GroupMatcher.jobGroupEquals(GROUP)));
+    }
+
+    @Test
+    public void invalidAndDuplicateSpecsDoNotStopTheBatch() throws Exception {
+        JobSpec invalid = new JobSpec("invalid", GROUP, "invalid", GROUP, String.class, startDate, "invalid");
+        List<JobSpec> specs = Arrays.asList(spec("a"), spec("a"), invalid, spec("b"), spec("c"));
+
+        JobBatchResult result = scheduledUtils.addJobs(specs, 2);
+
+        assertEquals(5, result.getTotal());
+        assertEquals(3, result.getSucceeded());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals("duplicate job in batch", result.getFailures().get(0).getMessage());
+        assertEquals(2, result.getFailures().get(1).getIndex());
+        assertTrue(result.getFailures().get(1).getMessage().startsWith("jobClass must implement"));
+        assertNull(result.getFailures().get(1).getCause());
+        assertEquals(new HashSet<>(Arrays.asList(JobKey.jobKey("a", GROUP), JobKey.jobKey("b", GROUP), JobKey.jobKey("c", GROUP))),
+                storedJobs());
+    }
+
+    @Test
+    public void existingJobFailsAloneWhenTheBatchIsRetried() throws Exception {
+        scheduledUtils.addJob("b", GROUP, "b", GROUP, NoopJob.class, startDate, "b");
+
+        JobBatchResult result = scheduledUtils.addJobs(Arrays.asList(spec("a"), spec("b"), spec("c")), 10);
+
+        assertEquals(2, result.getSucceeded());
+        assertEquals(1, result.getFailures().size());
+        JobBatchResult.Failure failure = result.getFailures().get(0);
+        assertEquals(1, failure.getIndex());
+        assertEquals("b", failure.getSpec().getJobName());
+        assertTrue(failure.getCause() instanceof ObjectAlreadyExistsException);
+        assertEquals(new HashSet<>(Arrays.asList(JobKey.jobKey("a", GROUP), JobKey.jobKey("b", GROUP), JobKey.jobKey("c", GROUP))),
+                storedJobs());
+        Scheduler scheduler = scheduleManager.getScheduler();
+        assertTrue(scheduler.checkExists(TriggerKey.triggerKey("a", GROUP)));
+        assertTrue(scheduler.checkExists(TriggerKey.triggerKey("c", GROUP)));
+        assertTrue(scheduler.isStarted());
+    }
+}
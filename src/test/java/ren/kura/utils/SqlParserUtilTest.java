@@ -0,0 +1,248 @@
+package ren.kura.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @ClassName: SqlParserUtilTest
+ * @Descripton: SqlParserUtil 的解析结果，以及多个线程同时解析时和记录的基线版本的结果一致
+ * @author: liuhao
+ * @date: 2026/10/18
+ */
+public class SqlParserUtilTest {
+
+    private static final String[] SQLS = {
+            "select a, b from t where x = 1",
+            "select t.id, count(*) from t left join u on t.id = u.tid where t.x = 'a' group by t.id having count(*) > 1 order by t.id",
+            "SELECT name FROM emp e INNER JOIN dept d ON e.dept = d.id WHERE d.name IN (SELECT name FROM dept WHERE flag = 1) ORDER BY name",
+            "select id\nfrom orders\nwhere amount > 100\ngroup by id",
+            "select max(v) from (select v from t where v > 0) s where s.v < 10",
+            "select a from t where note = 'from where order by' order by a desc",
+            "select a /* from */ from t -- where\nwhere b = 2",
+            "select x.order, x.from from x where x.group = 3",
+            "select a from t where x = 1 union select b from u where y = 2 order by 1",
+    };
+
+    private static final String[] CLAUSES = {"SELECT", "FROM", "JOIN", "WHERE", "GROUP", "HAVING", "ORDER"};
+
+    /**
+     * 多线程测试的期望结果，每行是语句和 CLAUSES 中每个子句的结果，不使用被测试的实现生成
+     * 前一部分是基线版本（1f7e8b3，加锁解析）对同样的语句输出的结果，原样记录
+     */
+    private static final String[][] BASELINE_RESULTS = {
+            {"select a, b from t where x = 1", "SELECT A, B ", "FROM T ", "", "WHERE X = 1", "", "", ""},
+            {"select id\nfrom orders\nwhere amount > 100\ngroup by id", "SELECT ID ", "FROM ORDERS ", "", "WHERE AMOUNT > 100 ", "GROUP BY ID", "", ""},
+            {"select a from t where x = 1 order by a", "SELECT A ", "FROM T ", "", "WHERE X = 1 ", "", "", "ORDER BY A"},
+            {"select id, name from users where age > 18 and city = 'x' order by name desc", "SELECT ID, NAME ", "FROM USERS ", "", "WHERE AGE > 18 AND CITY = 'X' ", "", "", "ORDER BY NAME DESC"},
+            {"select dept, count(*) from emp group by dept order by dept", "SELECT DEPT, COUNT(*) ", "FROM EMP ", "", "", "GROUP BY DEPT ", "", "ORDER BY DEPT"},
+            {"select t.a, u.b from t left join u on t.id = u.id where u.b = 2", "SELECT T.A, U.B ", "FROM T ", "LEFT JOIN U ON T.ID = U.ID ", "WHERE U.B = 2", "", "", ""},
+            {"select a from t right join u on t.id = u.id order by a", "SELECT A ", "FROM T ", "RIGHT JOIN U ON T.ID = U.ID ", "", "", "", "ORDER BY A"},
+            {"select count(*) from t", "SELECT COUNT(*) ", "FROM T", "", "", "", "", ""},
+            {"select a, sum(b) from t where c = 1 group by a order by a", "SELECT A, SUM(B) ", "FROM T ", "", "WHERE C = 1 ", "GROUP BY A ", "", "ORDER BY A"},
+    };
+
+    /**
+     * 基线版本会被子查询、常量、注释或者列名中的关键字截断的语句，期望值是修正之后的结果，和上面的单元测试一致
+     */
+    private static final String[][] CORRECTED_RESULTS = {
+            {"select t.id, count(*) from t left join u on t.id = u.tid where t.x = 'a' group by t.id having count(*) > 1 order by t.id", "SELECT T.ID, COUNT(*) ", "FROM T ", "LEFT JOIN U ON T.ID = U.TID ", "WHERE T.X = 'A' ", "GROUP BY T.ID ", "HAVING COUNT(*) > 1 ", "ORDER BY T.ID"},
+            {"SELECT name FROM emp e INNER JOIN dept d ON e.dept = d.id WHERE d.name IN (SELECT name FROM dept WHERE flag = 1) ORDER BY name", "SELECT NAME ", "FROM EMP E ", "INNER JOIN DEPT D ON E.DEPT = D.ID ", "WHERE D.NAME IN (SELECT NAME FROM DEPT WHERE FLAG = 1) ", "", "", "ORDER BY NAME"},
+            {"select max(v) from (select v from t where v > 0) s where s.v < 10", "SELECT MAX(V) ", "FROM (SELECT V FROM T WHERE V > 0) S ", "", "WHERE S.V < 10", "", "", ""},
+            {"select a from t where note = 'from where order by' order by a desc", "SELECT A ", "FROM T ", "", "WHERE NOTE = 'FROM WHERE ORDER BY' ", "", "", "ORDER BY A DESC"},
+            {"select a /* from */ from t -- where\nwhere b = 2", "SELECT A /* FROM */ ", "FROM T -- WHERE ", "", "WHERE B = 2", "", "", ""},
+            {"select x.order, x.from from x where x.group = 3", "SELECT X.ORDER, X.FROM ", "FROM X ", "", "WHERE X.GROUP = 3", "", "", ""},
+            {"select a from t where x = 1 union select b from u where y = 2 order by 1", "SELECT A ", "FROM T ", "", "WHERE X = 1 UNION SELECT B FROM U WHERE Y = 2 ORDER BY 1", "", "", ""},
+    };
+
+    @Before
+    public void setUp() {
+        SqlParserUtil.disableParseCache();
+    }
+
+    @After
+    public void tearDown() {
+        SqlParserUtil.disableParseCache();
+    }
+
+    @Test
+    public void parsesClauses() {
+        Map<String, String> map = SqlParserUtil.getParsedMapSql(SQLS[1]);
+        assertEquals("SELECT T.ID, COUNT(*) ", map.get("SELECT"));
+        assertEquals("FROM T ", map.get("FROM"));
+        assertEquals("LEFT JOIN U ON T.ID = U.TID ", map.get("JOIN"));
+        assertEquals("WHERE T.X = 'A' ", map.get("WHERE"));
+        assertEquals("GROUP BY T.ID ", map.get("GROUP"));
+        assertEquals("HAVING COUNT(*) > 1 ", map.get("HAVING"));
+        assertEquals("ORDER BY T.ID", map.get("ORDER"));
+    }
+
+    @Test
+    public void keywordsInSubQueriesLiteralsAndCommentsDoNotSplitClauses() {
+        Map<String, String> map = SqlParserUtil.getParsedMapSql(SQLS[2]);
+        assertEquals("WHERE D.NAME IN (SELECT NAME FROM DEPT WHERE FLAG = 1) ", map.get("WHERE"));
+        assertEquals("ORDER BY NAME", map.get("ORDER"));
+
+        map = SqlParserUtil.getParsedMapSql(SQLS[5]);
+        assertEquals("WHERE NOTE = 'FROM WHERE ORDER BY' ", map.get("WHERE"));
+
+        map = SqlParserUtil.getParsedMapSql(SQLS[6]);
+        assertEquals("SELECT A /* FROM */ ", map.get("SELECT"));
+        assertEquals("FROM T -- WHERE ", map.get("FROM"));
+        assertEquals("WHERE B = 2", map.get("WHERE"));
+
+        map = SqlParserUtil.getParsedMapSql(SQLS[7]);
+        assertEquals("SELECT X.ORDER, X.FROM ", map.get("SELECT"));
+        assertEquals("WHERE X.GROUP = 3", map.get("WHERE"));
+    }
+
+    /**
+     * 默认处理链没有 UNION 处理器，集合运算之后的语句属于前一个子句，不能丢掉
+     */
+    @Test
+    public void setOperatorsKeepTheRestOfTheStatement() {
+        Map<String, String> map = SqlParserUtil.getParsedMapSql("select a from t where x = 1 union select b from u where y = 2");
+        assertEquals("SELECT A ", map.get("SELECT"));
+        assertEquals("FROM T ", map.get("FROM"));
+        assertEquals("WHERE X = 1 UNION SELECT B FROM U WHERE Y = 2", map.get("WHERE"));
+        assertEquals("", map.get("GROUP"));
+        assertEquals("", map.get("ORDER"));
+
+        map = SqlParserUtil.getParsedMapSql("select a from t union all select b from u order by 1");
+        assertEquals("FROM T UNION ALL SELECT B FROM U ORDER BY 1", map.get("FROM"));
+
+        for (String operator : new String[]{"INTERSECT", "EXCEPT", "MINUS"}) {
+            map = SqlParserUtil.getParsedMapSql("select a from t group by a " + operator + " select b from u");
+            assertEquals("GROUP BY A " + operator + " SELECT B FROM U", map.get("GROUP"));
+        }
+
+        //子查询中的 UNION 只影响子查询
+        map = SqlParserUtil.getParsedMapSql("select a from t where a in (select b from u union select c from v) order by a");
+        assertEquals("WHERE A IN (SELECT B FROM U UNION SELECT C FROM V) ", map.get("WHERE"));
+        assertEquals("ORDER BY A", map.get("ORDER"));
+    }
+
+    @Test
+    public void registeredUnionHandlerTakesTheSetOperator() {
+        SqlHandlerChain chain = SqlHandlerChain.defaults().append("UNION", SqlKeyword.UNION);
+        Map<String, String> map = SqlParserUtil.getParsedMapSql("select a from t where x = 1 union select b from u where y = 2", chain);
+        assertEquals("WHERE X = 1 ", map.get("WHERE"));
+        assertEquals("UNION SELECT B FROM U WHERE Y = 2", map.get("UNION"));
+    }
+
+    /**
+     * 开启缓存之后，命中和没有命中时返回的子句都和不使用缓存时相同，常量不会变成 ?，空白和注释不会被合并
+     */
+    @Test
+    public void cachedResultsMatchUncachedResults() {
+        String[][] groups = {
+                {"select * from a join b on 1=1 where x = 'Foo' AND y = 5 order by x limit 10",
+                        "select * from a join b on 2 = 2 where x='bar'  and y = 77 order by x limit 99",
+                        "select * /* all */ from a\n join b on 3=3 where x = 'it''s' AND y = 5.5 order by x limit 1"},
+                {"select a from t where x = 1 group /* c */ by a",
+                        "select a from t where x = 22 group -- c\n by a"},
+                {"select a from t where a in (select b from u where c = 'x') order by a",
+                        "select a from t where a in ( select b from u where c = 'yy' ) order by a"},
+                {"select a from t where x = 1 union select b from u where y = 2"},
+        };
+        for (boolean replaceLiterals : new boolean[]{true, false}) {
+            SqlParserUtil.enableParseCache(100, 100000, replaceLiterals);
+            for (String[] group : groups) {
+                for (String sql : group) {
+                    Map<String, String> expected = SqlParserUtil.getParsedMapSql(sql, SqlParserUtil.getSqlChain());
+                    assertEquals(sql, expected, SqlParserUtil.getParsedMapSql(sql));
+                    assertEquals(sql, expected, SqlParserUtil.getParsedMapSql(sql));
+                }
+            }
+            SqlParseCache cache = SqlParserUtil.getParseCache();
+            assertTrue(cache.getHitCount() > 0);
+            if (replaceLiterals) {
+                //同一组的语句只有常量和空白不同，使用同一个缓存
+                assertEquals(groups.length, cache.size());
+            }
+        }
+        Map<String, String> map = SqlParserUtil.getParsedMapSql("select * from a join b on 1=1 where x = 'Foo' AND y = 5");
+        assertEquals("JOIN B ON 1=1 ", map.get("JOIN"));
+        assertEquals("WHERE X = 'FOO' AND Y = 5", map.get("WHERE"));
+    }
+
+    /**
+     * 多个线程同时解析，每个结果都和记录的期望结果相同
+     */
+    @Test
+    public void concurrentParsingMatchesRecordedResults() throws Exception {
+        assertConcurrentMatchesRecorded();
+    }
+
+    @Test
+    public void concurrentCachedParsingMatchesRecordedResults() throws Exception {
+        SqlParserUtil.enableParseCache(4, 100000, true);
+        assertConcurrentMatchesRecorded();
+        assertTrue(SqlParserUtil.getParseCache().getEvictionCount() > 0);
+    }
+
+    private static Map<String, String> expected(String[] row) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < CLAUSES.length; i++) {
+            map.put(CLAUSES[i], row[i + 1]);
+        }
+        return map;
+    }
+
+    private void assertConcurrentMatchesRecorded() throws Exception {
+        final List<String> sqls = new ArrayList<>();
+        final List<Map<String, String>> expected = new ArrayList<>();
+        for (String[][] results : new String[][][]{BASELINE_RESULTS, CORRECTED_RESULTS}) {
+            for (String[] row : results) {
+                sqls.add(row[0]);
+                expected.add(expected(row));
+            }
+        }
+        int threads = 16;
+        final int iterations = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        int mismatches = 0;
+                        for (int i = 0; i < iterations; i++) {
+                            int index = (i + offset) % sqls.size();
+                            if (!expected.get(index).equals(SqlParserUtil.getParsedMapSql(sqls.get(index)))) {
+                                mismatches++;
+                            }
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+            start.countDown();
+            int mismatches = 0;
+            for (Future<Integer> future : futures) {
+                mismatches += future.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(0, mismatches);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package ren.kura.utils;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.TriggerBuilder;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author: liuha
+ * @Date: 2026/10/18
+ * @Time: 16:20
+ * @Description: 两个调度器通过 PartitionedJDBCDelegate 共用一个内存数据库，每个任务组只由一个节点执行，节点停止之后由另一个节点接管
+ */
+public class TriggerPartitionerTest {
+
+    private static final String URL = "jdbc:h2:mem:partition;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+
+    private static final String[] GROUPS = {"report", "convert", "mail", "sync", "audit", "clean"};
+
+    /**
+     * 所有任务的触发器都在同一个触发器组中
+     */
+    private static final String TRIGGER_GROUP = "shared";
+
+    private static final long CHECKIN_INTERVAL = 1000L;
+
+    /**
+     * 任务组 -> 执行过这个组的任务的节点
+     */
+    private static final Map<String, Set<String>> EXECUTED = new ConcurrentHashMap<String, Set<String>>();
+
+    private static Connection keepAlive;
+
+    public static class RecordJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            try {
+                record(context.getJobDetail().getKey().getGroup(), context.getScheduler().getSchedulerInstanceId());
+            } catch (SchedulerException e) {
+                throw new JobExecutionException(e);
+            }
+        }
+    }
+
+    private static void record(String group, String instanceId) {
+        synchronized (EXECUTED) {
+            Set<String> nodes = EXECUTED.get(group);
+            if (nodes == null) {
+                nodes = new HashSet<String>();
+                EXECUTED.put(group, nodes);
+            }
+            nodes.add(instanceId);
+        }
+    }
+
+    private static Map<String, Set<String>> drain() {
+        synchronized (EXECUTED) {
+            Map<String, Set<String>> copy = new ConcurrentHashMap<String, Set<String>>(EXECUTED);
+            EXECUTED.clear();
+            return copy;
+        }
+    }
+
+    @BeforeClass
+    public static void createTables() throws Exception {
+        keepAlive = DriverManager.getConnection(URL, "sa", "");
+        StringBuilder sql = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                TriggerPartitionerTest.class.getResourceAsStream("quartz_tables_h2.sql"), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sql.append(line).append('\n');
+            }
+        } finally {
+            reader.close();
+        }
+        Statement statement = keepAlive.createStatement();
+        try {
+            for (String ddl : sql.toString().split(";")) {
+                if (ddl.trim().length() > 0) {
+                    statement.execute(ddl);
+                }
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    @AfterClass
+    public static void dropDatabase() throws Exception {
+        if (keepAlive != null) {
+            keepAlive.close();
+        }
+    }
+
+    private static Properties properties(String instanceId) {
+        //数据源按名称全局注册，一个节点停止时会关闭它的数据源，每个节点使用自己的数据源
+        String dataSource = "ds_" + instanceId.replace('-', '_');
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.scheduler.instanceName", "partition");
+        properties.setProperty("org.quartz.scheduler.instanceId", instanceId);
+        properties.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        properties.setProperty("org.quartz.scheduler.idleWaitTime", "1000");
+        properties.setProperty("org.quartz.threadPool.class", "org.quartz.simpl.SimpleThreadPool");
+        properties.setProperty("org.quartz.threadPool.threadCount", "4");
+        properties.setProperty("org.quartz.jobStore.class", "org.quartz.impl.jdbcjobstore.JobStoreTX");
+        properties.setProperty("org.quartz.jobStore.driverDelegateClass", PartitionedJDBCDelegate.class.getName());
+        properties.setProperty("org.quartz.jobStore.driverDelegateInitString", "stealAfterMillis=-1|membershipRefreshMillis=200");
+        properties.setProperty("org.quartz.jobStore.dataSource", dataSource);
+        properties.setProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+        properties.setProperty("org.quartz.jobStore.isClustered", "true");
+        properties.setProperty("org.quartz.jobStore.clusterCheckinInterval", String.valueOf(CHECKIN_INTERVAL));
+        properties.setProperty("org.quartz.jobStore.acquireTriggersWithinLock", "true");
+        properties.setProperty("org.quartz.dataSource." + dataSource + ".driver", "org.h2.Driver");
+        properties.setProperty("org.quartz.dataSource." + dataSource + ".URL", URL);
+        properties.setProperty("org.quartz.dataSource." + dataSource + ".user", "sa");
+        properties.setProperty("org.quartz.dataSource." + dataSource + ".password", "");
+        properties.setProperty("org.quartz.dataSource." + dataSource + ".maxConnections", "6");
+        return properties;
+    }
+
+    /**
+     * 和 TriggerPartitioner 的分区规则一致：存活的节点按实例id排序，任务组的hash对节点数取余
+     */
+    private static String owner(String group, String... sortedNodes) {
+        return sortedNodes[(group.hashCode() & 0x7fffffff) % sortedNodes.length];
+    }
+
+    /**
+     * 等待所有任务组都执行过之后返回执行记录
+     */
+    private static Map<String, Set<String>> awaitAllGroups(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (EXECUTED.size() < GROUPS.length && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        return drain();
+    }
+
+    @Test
+    public void partitionsByJobGroupAndFailsOver() throws Exception {
+        Set<String> owners = new HashSet<String>();
+        for (String group : GROUPS) {
+            owners.add(owner(group, "node-a", "node-b"));
+        }
+        assertEquals("both nodes should own some groups", 2, owners.size());
+
+        ScheduleManager nodeA = new ScheduleManager(properties("node-a"));
+        ScheduleManager nodeB = new ScheduleManager(properties("node-b"));
+        try {
+            Scheduler scheduler = nodeA.getScheduler();
+            for (String group : GROUPS) {
+                scheduler.scheduleJob(JobBuilder.newJob(RecordJob.class).withIdentity("job", group).build(),
+                        TriggerBuilder.newTrigger().withIdentity("trigger-" + group, TRIGGER_GROUP)
+                                .withSchedule(SimpleScheduleBuilder.repeatSecondlyForever().withIntervalInMilliseconds(200))
+                                .build());
+            }
+            nodeA.start();
+            nodeB.start();
+            //两个节点都签到并刷新节点列表之后再开始记录
+            Thread.sleep(CHECKIN_INTERVAL + 1000);
+            drain();
+
+            Map<String, Set<String>> executed = awaitAllGroups(20000);
+            assertEquals(GROUPS.length, executed.size());
+            for (String group : GROUPS) {
+                assertEquals(group, Collections.singleton(owner(group, "node-a", "node-b")), executed.get(group));
+            }
+
+            //node-a 停止，签到超时之后 node-b 执行所有的任务组
+            nodeA.shutdownGracefully(5000);
+            long deadline = System.currentTimeMillis() + 30000;
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(500);
+                executed = drain();
+                if (executed.size() == GROUPS.length) {
+                    break;
+                }
+            }
+            Thread.sleep(1000);
+            executed = awaitAllGroups(5000);
+            assertEquals(GROUPS.length, executed.size());
+            for (String group : GROUPS) {
+                assertEquals(group, Collections.singleton("node-b"), executed.get(group));
+            }
+        } finally {
+            nodeA.shutdownGracefully(0);
+            nodeB.shutdownGracefully(0);
+        }
+    }
+}